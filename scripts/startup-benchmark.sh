@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+#
+# Measures time-to-first-output of the CLI for each mode over repeated runs.
+# Modes that need no server must not slow down when SonarQube is down or slow to answer.
+#
+# Usage: scripts/startup-benchmark.sh [runs] [jar]
+#   runs  number of runs per mode (default 10)
+#   jar   fat jar to benchmark (default build/libs/fat.jar)
+
+set -euo pipefail
+
+RUNS="${1:-10}"
+JAR="${2:-build/libs/fat.jar}"
+
+if [ ! -f "$JAR" ]; then
+    echo "❌ $JAR not found, build it first: ./gradlew buildFatJar" >&2
+    exit 1
+fi
+
+# Each case is "<label>|<arguments>"
+CASES=(
+    "usage|"
+    "unknown mode|noSuchMode"
+    "runScan usage error|runScan"
+    "orchestrateScanning usage error|orchestrateScanning"
+    "parseReport usage error|parseReport"
+    "runScan missing config|runScan /nonexistent"
+    "listProjects|listProjects"
+)
+
+# Milliseconds until the first line of output (stdout or stderr) appears
+first_output_millis() {
+    local start end
+    start=$(date +%s%N)
+    # shellcheck disable=SC2086
+    { java -jar "$JAR" $1 2>&1 || true; } | {
+        IFS= read -r _ || true
+        end=$(date +%s%N)
+        echo $(( (end - start) / 1000000 ))
+        cat > /dev/null
+    }
+}
+
+printf "%-36s %8s %8s %8s\n" "Mode" "min ms" "p50 ms" "p90 ms"
+for entry in "${CASES[@]}"; do
+    label="${entry%%|*}"
+    arguments="${entry#*|}"
+    samples=()
+    for ((i = 0; i < RUNS; i++)); do
+        samples+=("$(first_output_millis "$arguments")")
+    done
+    sorted=($(printf "%s\n" "${samples[@]}" | sort -n))
+    p50=${sorted[$(( (RUNS - 1) / 2 ))]}
+    p90=${sorted[$(( (RUNS * 9 + 9) / 10 - 1 ))]}
+    printf "%-36s %8s %8s %8s\n" "$label" "${sorted[0]}" "$p50" "$p90"
+done
@@ -0,0 +1,49 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rendering single records as CSV rows, cycling over one page of synthetic records
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CsvRowBenchmark {
+    
+    private final List<Issue> issues = new ArrayList<>();
+    private final List<Hotspot> hotspots = new ArrayList<>();
+    private int next;
+    
+    @Setup(Level.Trial)
+    public void decodeSamples() throws IOException {
+        byte[] issuePage = SyntheticPayloads.issuePages(SyntheticPayloads.PAGE_SIZE, 42).get(0);
+        SearchResponseDecoder.decodeIssues(new ByteArrayInputStream(issuePage), issues::add);
+        byte[] hotspotPage = SyntheticPayloads.hotspotPages(SyntheticPayloads.PAGE_SIZE, 43).get(0);
+        SearchResponseDecoder.decodeHotspots(new ByteArrayInputStream(hotspotPage), hotspots::add);
+    }
+    
+    @Benchmark
+    public String issueToCsvRow() {
+        next = (next + 1) % issues.size();
+        return issues.get(next).toCsvRow();
+    }
+    
+    @Benchmark
+    public String hotspotToCsvRow() {
+        next = (next + 1) % hotspots.size();
+        return hotspots.get(next).toCsvRow();
+    }
+}
@@ -0,0 +1,105 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Issue CSV write path before and after CsvEncoder: one operation writes every synthetic issue to a
+ * temporary file through BufferedWriter(FileWriter), as ReportExporter did at the time. The "records"
+ * counter gives the rate in rows per second
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class CsvWritePathBenchmark {
+    
+    @Param({"200000"})
+    public int recordCount;
+    
+    private final List<Issue> issues = new ArrayList<>();
+    private File file;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RecordCounter {
+        public long records;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            records = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void decodeIssues() throws IOException {
+        for (byte[] page : SyntheticPayloads.issuePages(recordCount, 42)) {
+            SearchResponseDecoder.decodeIssues(new ByteArrayInputStream(page), issues::add);
+        }
+        file = Files.createTempFile("csv-write-path", ".csv").toFile();
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteFile() {
+        file.delete();
+    }
+    
+    /**
+     * Rows rendered as Strings by the Stream pipeline Issue.toCsvRow() used before CsvEncoder
+     */
+    @Benchmark
+    public void streamJoinedRows(RecordCounter counter) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            out.write(String.join(",", Issue.FIELDS) + System.lineSeparator());
+            for (Issue issue : issues) {
+                out.write(streamJoinedRow(issue));
+                out.write(System.lineSeparator());
+                counter.records++;
+            }
+        }
+    }
+    
+    @Benchmark
+    public void csvEncoder(RecordCounter counter) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            CsvEncoder csv = new CsvEncoder(out);
+            csv.writeRow(Issue.FIELDS);
+            for (Issue issue : issues) {
+                issue.writeCsvRow(csv);
+                counter.records++;
+            }
+        }
+    }
+    
+    /**
+     * The row rendering of Issue.toCsvRow() before CsvEncoder replaced it, kept only for comparison
+     */
+    private static String streamJoinedRow(Issue issue) {
+        return Stream.of(issue.toValues())
+                .map(value -> value == null ? "" : value)
+                .map(value -> value.replaceAll("\"", "\"\""))
+                .map(value -> Stream.of("\"", ",").anyMatch(value::contains) ? "\"" + value + "\"" : value)
+                .collect(Collectors.joining(","));
+    }
+}
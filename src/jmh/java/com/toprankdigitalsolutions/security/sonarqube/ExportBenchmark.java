@@ -0,0 +1,93 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decode and CSV export throughput over a whole synthetic project. One operation processes every
+ * page of the payload; the "records" counter gives the rate in records per second
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExportBenchmark {
+    
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int recordCount;
+    
+    private List<byte[]> issuePages;
+    private List<byte[]> hotspotPages;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class RecordCounter {
+        public long records;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            records = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void generatePayloads() {
+        issuePages = SyntheticPayloads.issuePages(recordCount, 42);
+        hotspotPages = SyntheticPayloads.hotspotPages(recordCount, 43);
+    }
+    
+    @Benchmark
+    public void decodeIssues(Blackhole blackhole, RecordCounter counter) throws IOException {
+        for (byte[] page : issuePages) {
+            counter.records += SearchResponseDecoder.decodeIssues(new ByteArrayInputStream(page), blackhole::consume).getCount();
+        }
+    }
+    
+    @Benchmark
+    public void decodeHotspots(Blackhole blackhole, RecordCounter counter) throws IOException {
+        for (byte[] page : hotspotPages) {
+            counter.records += SearchResponseDecoder.decodeHotspots(new ByteArrayInputStream(page), blackhole::consume).getCount();
+        }
+    }
+    
+    /**
+     * The issue export path of ReportExporter: decode each page and encode every issue as a CSV row
+     */
+    @Benchmark
+    public void writeIssuesCsv(RecordCounter counter) throws IOException {
+        try (Writer out = new BufferedWriter(Writer.nullWriter())) {
+            CsvEncoder csv = new CsvEncoder(out);
+            for (byte[] page : issuePages) {
+                counter.records += SearchResponseDecoder.decodeIssues(new ByteArrayInputStream(page), issue -> issue.writeCsvRow(csv)).getCount();
+            }
+        }
+    }
+    
+    /**
+     * The hotspot export path of ReportExporter
+     */
+    @Benchmark
+    public void writeHotspotsCsv(RecordCounter counter) throws IOException {
+        try (Writer out = new BufferedWriter(Writer.nullWriter())) {
+            CsvEncoder csv = new CsvEncoder(out);
+            for (byte[] page : hotspotPages) {
+                counter.records += SearchResponseDecoder.decodeHotspots(new ByteArrayInputStream(page), hotspot -> hotspot.writeCsvRow(csv)).getCount();
+            }
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end throughput of parseReport against the embedded MockSonarQubeServer: HTTP, decoding and
+ * CSV writing together. Each run exports one project into a temporary directory and reports the
+ * records written per second and the peak heap. The mock server shares the heap, so the peak
+ * includes the pages it renders.
+ * <p>
+ * Run with ./gradlew parseReportBenchmark -PbenchmarkArgs="--issues 1000000 --sharded"
+ */
+public final class ParseReportBenchmark {
+    
+    private static final String PROJECT_KEY = "benchmark-project";
+    
+    private ParseReportBenchmark() {
+    }
+    
+    public static void main(String[] args) throws Exception {
+        HttpClientSettings.configureConnectionPool();
+        int issues = Integer.parseInt(optionValue(args, "--issues", "100000"));
+        int hotspots = Integer.parseInt(optionValue(args, "--hotspots", "10000"));
+        int warmupRuns = Integer.parseInt(optionValue(args, "--warmup", "1"));
+        int runs = Integer.parseInt(optionValue(args, "--runs", "3"));
+        
+        ExportOptions options = new ExportOptions();
+        options.setSharded(hasOption(args, "--sharded"));
+        options.setShardWorkers(Integer.parseInt(optionValue(args, "--shard-workers", "4")));
+        options.setConcurrency(Integer.parseInt(optionValue(args, "--concurrency", "1")));
+        options.setSingleQuery(hasOption(args, "--single-query"));
+        
+        try (MockSonarQubeServer server = new MockSonarQubeServer(Long.parseLong(optionValue(args, "--seed", "42")))) {
+            server.addProject(PROJECT_KEY, issues, hotspots);
+            server.setLatency(Long.parseLong(optionValue(args, "--latency-ms", "0")),
+                    Long.parseLong(optionValue(args, "--latency-jitter-ms", "0")));
+            server.setErrorRate(Double.parseDouble(optionValue(args, "--error-rate", "0")), 503);
+            server.setThrottling(Integer.parseInt(optionValue(args, "--max-in-flight", "0")), 1);
+            server.start();
+            
+            System.out.println("🚀 Mock SonarQube at " + server.getBaseUrl() + " with " + issues + " issues and "
+                    + hotspots + " hotspots");
+            
+            double[] rates = new double[runs];
+            long maxPeakHeap = 0;
+            try (SonarQubeClient client = new SonarQubeClient(server.getBaseUrl(), HttpClientSettings.fromSystemProperties())) {
+                for (int run = -warmupRuns; run < runs; run++) {
+                    RunResult result = runOnce(client, options);
+                    String label = run < 0 ? "warmup " + (run + warmupRuns + 1) : "run " + (run + 1);
+                    System.out.printf("📊 %s: %d records in %.2f s = %.0f records/s, peak heap %d MB%s%n",
+                            label, result.records, result.seconds, result.records / result.seconds,
+                            result.peakHeapBytes / (1024 * 1024), result.succeeded ? "" : " (export failed)");
+                    if (run >= 0) {
+                        rates[run] = result.records / result.seconds;
+                        maxPeakHeap = Math.max(maxPeakHeap, result.peakHeapBytes);
+                    }
+                }
+            }
+            
+            Arrays.sort(rates);
+            System.out.println();
+            System.out.printf("✅ parseReport: median %.0f records/s (min %.0f, max %.0f), peak heap %d MB%n",
+                    rates[rates.length / 2], rates[0], rates[rates.length - 1], maxPeakHeap / (1024 * 1024));
+            System.out.println("ℹ️ Mock server answered " + server.getRequestCount() + " requests, "
+                    + server.getThrottledCount() + " throttled, " + server.getErrorCount() + " injected errors");
+        }
+    }
+    
+    private static RunResult runOnce(SonarQubeClient client, ExportOptions options) throws IOException {
+        Path outputDir = Files.createTempDirectory("parse-report-benchmark");
+        try {
+            System.gc();
+            resetPeakHeap();
+            long start = System.nanoTime();
+            boolean succeeded = new ReportExporter(client, options).exportAllReports(PROJECT_KEY, outputDir.toString());
+            double seconds = (System.nanoTime() - start) / 1e9;
+            long peakHeap = peakHeap();
+            return new RunResult(countRecords(outputDir.resolve("reports").resolve(PROJECT_KEY)), seconds, peakHeap, succeeded);
+        } finally {
+            deleteRecursively(outputDir);
+        }
+    }
+    
+    /**
+     * Data rows of every CSV report but the summary; the first line of each file is its header
+     */
+    private static long countRecords(Path reportsDir) throws IOException {
+        long records = 0;
+        File[] reports = reportsDir.toFile().listFiles((dir, name) -> name.endsWith(".csv") && !name.equals(IssueSummary.CSV_FILE));
+        if (reports == null) {
+            return 0;
+        }
+        for (File report : reports) {
+            try (Stream<String> lines = Files.lines(report.toPath())) {
+                records += Math.max(0, lines.count() - 1);
+            }
+        }
+        return records;
+    }
+    
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+            }
+        }
+    }
+    
+    /**
+     * Sum of the peak usage of every heap pool. The pools can peak at different moments, so this is an upper bound
+     */
+    private static long peakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+    
+    private static boolean hasOption(String[] args, String name) {
+        return Arrays.asList(args).contains(name);
+    }
+    
+    private static String optionValue(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+    
+    private static class RunResult {
+        private final long records;
+        private final double seconds;
+        private final long peakHeapBytes;
+        private final boolean succeeded;
+        
+        private RunResult(long records, double seconds, long peakHeapBytes, boolean succeeded) {
+            this.records = records;
+            this.seconds = seconds;
+            this.peakHeapBytes = peakHeapBytes;
+            this.succeeded = succeeded;
+        }
+    }
+}
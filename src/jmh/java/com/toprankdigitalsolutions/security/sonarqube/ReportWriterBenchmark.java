@@ -0,0 +1,124 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Report file write throughput: one operation writes the five severity CSVs and the hotspot CSV of a
+ * synthetic project into a temporary directory. Records are decoded up front so only encoding and file
+ * output are measured; the "megabytes" counter gives the rate in MB per second
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ReportWriterBenchmark {
+    
+    private static final String[] SEVERITIES = {"BLOCKER", "CRITICAL", "MAJOR", "MINOR", "INFO"};
+    
+    /**
+     * FileWriter is the BufferedWriter(FileWriter) the reports were written with before ReportFileWriter
+     */
+    @Param({"FileWriter", "FileChannel"})
+    public String writer;
+    
+    @Param({"10000", "100000", "1000000"})
+    public int recordCount;
+    
+    private Map<String, List<Issue>> issuesBySeverity;
+    private List<Hotspot> hotspots;
+    private Path directory;
+    
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class ByteCounter {
+        public double megabytes;
+        
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+    
+    @Setup(Level.Trial)
+    public void decodePayloads() throws IOException {
+        issuesBySeverity = new HashMap<>();
+        for (String severity : SEVERITIES) {
+            issuesBySeverity.put(severity, new ArrayList<>());
+        }
+        for (byte[] page : SyntheticPayloads.issuePages(recordCount, 42)) {
+            SearchResponseDecoder.decodeIssues(new ByteArrayInputStream(page),
+                    issue -> issuesBySeverity.computeIfAbsent(issue.getSeverity(), severity -> new ArrayList<>()).add(issue));
+        }
+        hotspots = new ArrayList<>();
+        for (byte[] page : SyntheticPayloads.hotspotPages(recordCount, 43)) {
+            SearchResponseDecoder.decodeHotspots(new ByteArrayInputStream(page), hotspots::add);
+        }
+        directory = Files.createTempDirectory("report-writer-benchmark");
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteReports() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+    
+    @Benchmark
+    public void writeReports(ByteCounter counter) throws IOException {
+        long bytes = 0;
+        for (String severity : SEVERITIES) {
+            Path file = directory.resolve(severity + ".csv");
+            try (Writer out = open(file)) {
+                CsvEncoder csv = new CsvEncoder(out);
+                csv.writeRow(Issue.FIELDS);
+                for (Issue issue : issuesBySeverity.get(severity)) {
+                    issue.writeCsvRow(csv);
+                }
+            }
+            bytes += Files.size(file);
+        }
+        Path file = directory.resolve("hotspots.csv");
+        try (Writer out = open(file)) {
+            CsvEncoder csv = new CsvEncoder(out);
+            csv.writeRow(Hotspot.FIELDS);
+            for (Hotspot hotspot : hotspots) {
+                hotspot.writeCsvRow(csv);
+            }
+        }
+        bytes += Files.size(file);
+        counter.megabytes += bytes / (1024.0 * 1024.0);
+    }
+    
+    private Writer open(Path file) throws IOException {
+        if ("FileChannel".equals(writer)) {
+            return new ReportFileWriter(file);
+        }
+        return new BufferedWriter(new FileWriter(file.toFile()));
+    }
+}
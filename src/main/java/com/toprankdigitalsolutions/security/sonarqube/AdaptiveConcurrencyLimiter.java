@@ -0,0 +1,104 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Client-side limit on concurrent SonarQube requests that adapts with AIMD.
+ * <p>
+ * Each successful request grows the limit by 1/limit, so it rises by about one per round of
+ * requests. A request rejected for overload (429/503 or a failed connection) halves the limit,
+ * and a request much slower than the smoothed latency of its class trims it by 10%. Only requests
+ * started after the previous cut can cut again, so one burst of rejections halves the limit once
+ * instead of collapsing it.
+ * <p>
+ * Latency is smoothed per request class, such as a 500-issue page or a one-result count, because their
+ * normal latencies differ by far more than the slowness factor. Callers release a slot as soon as the
+ * server has answered, before reading a large body, so downloads and local work do not count as
+ * server slowness.
+ */
+public class AdaptiveConcurrencyLimiter {
+    
+    /**
+     * How a request ended, as far as the limiter is concerned
+     */
+    public enum Outcome {
+        SUCCESS,
+        OVERLOADED
+    }
+    
+    private static final double SLOW_LATENCY_FACTOR = 2.0;
+    private static final double LATENCY_SMOOTHING = 0.05;
+    
+    private final int minLimit;
+    private final int maxLimit;
+    private final Map<String, Double> smoothedLatencyNanos = new HashMap<>();
+    private double limit;
+    private int inFlight;
+    private long lastDecreaseNanos;
+    
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.lastDecreaseNanos = System.nanoTime();
+    }
+    
+    /**
+     * Wait for a free slot
+     *
+     * @return the start time of the request, to be passed back to release
+     */
+    public synchronized long acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+        return System.nanoTime();
+    }
+    
+    /**
+     * Free the slot of a request the server has answered and adapt the limit to its outcome
+     *
+     * @param latencyClass requests whose latencies are comparable, such as one endpoint at one page size
+     */
+    public synchronized void release(String latencyClass, long startNanos, Outcome outcome) {
+        long endNanos = System.nanoTime();
+        long latencyNanos = endNanos - startNanos;
+        inFlight--;
+        
+        double smoothed = smoothedLatencyNanos.getOrDefault(latencyClass, 0.0);
+        boolean mayDecrease = startNanos > lastDecreaseNanos;
+        if (outcome == Outcome.OVERLOADED) {
+            if (mayDecrease) {
+                decrease(0.5, endNanos);
+                System.err.println("⚠️ SonarQube is overloaded, reducing concurrency to " + getLimit());
+            }
+        } else if (smoothed > 0 && latencyNanos > smoothed * SLOW_LATENCY_FACTOR) {
+            if (mayDecrease) {
+                decrease(0.9, endNanos);
+            }
+        } else {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+        
+        if (outcome == Outcome.SUCCESS) {
+            smoothedLatencyNanos.put(latencyClass, smoothed == 0
+                    ? latencyNanos
+                    : smoothed + LATENCY_SMOOTHING * (latencyNanos - smoothed));
+        }
+        notifyAll();
+    }
+    
+    /**
+     * Current number of requests allowed in flight
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+    
+    private void decrease(double factor, long nowNanos) {
+        limit = Math.max(minLimit, limit * factor);
+        lastDecreaseNanos = nowNanos;
+    }
+}
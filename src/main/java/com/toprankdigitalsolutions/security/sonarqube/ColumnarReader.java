@@ -0,0 +1,134 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the rows of a file written by ColumnarReportSink, one row group in memory at a time
+ */
+public class ColumnarReader implements Closeable {
+    
+    private final DataInputStream in;
+    private final String[] columns;
+    private final boolean[] dictionaryEncoded;
+    private final boolean chunkEncodings;
+    private final List<List<String>> dictionaries = new ArrayList<>();
+    private String[][] rowGroup = new String[0][];
+    private int nextRow;
+    private boolean finished;
+    
+    /**
+     * @param in a buffered stream; the column names are read immediately
+     */
+    public ColumnarReader(InputStream in) throws IOException {
+        this.in = new DataInputStream(in);
+        byte[] magic = new byte[ColumnarReportSink.MAGIC.length];
+        this.in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarReportSink.MAGIC)) {
+            throw new IOException("Not a columnar report file");
+        }
+        int version = this.in.read();
+        if (version != 1 && version != ColumnarReportSink.VERSION) {
+            throw new IOException("Unsupported columnar report version: " + version);
+        }
+        this.chunkEncodings = version >= 2;
+        
+        int columnCount = readVarInt();
+        this.columns = new String[columnCount];
+        this.dictionaryEncoded = new boolean[columnCount];
+        for (int i = 0; i < columnCount; i++) {
+            columns[i] = readString(readVarInt());
+            dictionaryEncoded[i] = this.in.readUnsignedByte() == ColumnarReportSink.DICTIONARY;
+            dictionaries.add(new ArrayList<>());
+        }
+    }
+    
+    /**
+     * Column names, in the order of the values returned by readRow()
+     */
+    public String[] getColumns() {
+        return columns.clone();
+    }
+    
+    /**
+     * Read the next row, or null at the end of the file
+     */
+    public String[] readRow() throws IOException {
+        if (nextRow == rowGroup.length) {
+            if (finished || !readRowGroup()) {
+                return null;
+            }
+        }
+        return rowGroup[nextRow++];
+    }
+    
+    private boolean readRowGroup() throws IOException {
+        int rows = readVarInt();
+        if (rows == 0) {
+            finished = true;
+            return false;
+        }
+        
+        rowGroup = new String[rows][columns.length];
+        nextRow = 0;
+        for (int column = 0; column < columns.length; column++) {
+            if (chunkEncodings) {
+                dictionaryEncoded[column] = in.readUnsignedByte() == ColumnarReportSink.DICTIONARY;
+                if (!dictionaryEncoded[column]) {
+                    // The writer never goes back to a dictionary it has given up
+                    dictionaries.get(column).clear();
+                }
+            }
+            if (dictionaryEncoded[column]) {
+                List<String> dictionary = dictionaries.get(column);
+                int newEntries = readVarInt();
+                for (int i = 0; i < newEntries; i++) {
+                    dictionary.add(readString(readVarInt()));
+                }
+                for (int row = 0; row < rows; row++) {
+                    int code = readVarInt();
+                    rowGroup[row][column] = code == 0 ? null : dictionary.get(code - 1);
+                }
+            } else {
+                for (int row = 0; row < rows; row++) {
+                    int length = readVarInt();
+                    rowGroup[row][column] = length == 0 ? null : readString(length - 1);
+                }
+            }
+        }
+        return true;
+    }
+    
+    private String readString(int length) throws IOException {
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Truncated columnar report file");
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in columnar report file");
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
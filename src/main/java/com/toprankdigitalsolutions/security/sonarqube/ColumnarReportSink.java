@@ -0,0 +1,177 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Writes records in a compact column-oriented binary format, read back by ColumnarReader.
+ * <p>
+ * Rows are buffered into row groups of ROW_GROUP_SIZE and each group is written column after column.
+ * Columns with few distinct values (rule, severity, component, status, ...) are dictionary encoded:
+ * every distinct value is stored once per file and rows refer to it by number. Columns where almost
+ * every value is unique (key, hash, message, dates) are stored plain. A dictionary column that still
+ * collects more than MAX_DICTIONARY_ENTRIES values switches to plain for the rest of the file, so its
+ * dictionary never outgrows that bound by more than one row group. Layout, with every number a varint:
+ * <pre>
+ * file       = "SQCOL" version(2) columnCount { name encoding(0 plain, 1 dictionary) } rowGroup* 0
+ * rowGroup   = rowCount(&gt;0) { encoding chunk, in column order }
+ * dictionary = newEntryCount { string } rowCount * { code: 0 for null, n for the n-th entry of the column }
+ * plain      = rowCount * { 0 for null, byteLength + 1 then the UTF-8 bytes }
+ * string     = byteLength then the UTF-8 bytes
+ * </pre>
+ * The encoding in the header is the one the column starts with. Dictionary entries are numbered from 1
+ * in the order they first appear in the file, so a reader only has to append the new entries of each
+ * group to the ones it has already seen. Version 1 files have no per-chunk encoding byte.
+ */
+public class ColumnarReportSink<T> implements ReportSink<T> {
+    
+    static final byte[] MAGIC = {'S', 'Q', 'C', 'O', 'L'};
+    static final int VERSION = 2;
+    static final int PLAIN = 0;
+    static final int DICTIONARY = 1;
+    
+    /**
+     * Rows buffered before a group is written; bounds the heap held by one open report
+     */
+    static final int ROW_GROUP_SIZE = 16384;
+    
+    /**
+     * Distinct values after which a dictionary column is stored plain; the dictionary then is dropped
+     */
+    static final int MAX_DICTIONARY_ENTRIES = 16384;
+    
+    private final OutputStream out;
+    private final Function<T, String[]> values;
+    private final boolean[] dictionaryEncoded;
+    private final List<Map<String, Integer>> dictionaries = new ArrayList<>();
+    private final String[][] rowGroup;
+    private int rows;
+    
+    /**
+     * @param out          a buffered stream, closed with the sink
+     * @param plainColumns columns stored without a dictionary because their values rarely repeat
+     */
+    public ColumnarReportSink(OutputStream out, String[] fields, Set<String> plainColumns, Function<T, String[]> values) throws IOException {
+        this.out = out;
+        this.values = values;
+        this.dictionaryEncoded = new boolean[fields.length];
+        this.rowGroup = new String[ROW_GROUP_SIZE][];
+        
+        out.write(MAGIC);
+        out.write(VERSION);
+        writeVarInt(fields.length);
+        for (int i = 0; i < fields.length; i++) {
+            dictionaryEncoded[i] = !plainColumns.contains(fields[i]);
+            dictionaries.add(dictionaryEncoded[i] ? new HashMap<>() : null);
+            writeString(fields[i]);
+            out.write(dictionaryEncoded[i] ? DICTIONARY : PLAIN);
+        }
+    }
+    
+    @Override
+    public void accept(T record) throws IOException {
+        rowGroup[rows++] = values.apply(record);
+        if (rows == ROW_GROUP_SIZE) {
+            flushRowGroup();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        try {
+            flushRowGroup();
+            writeVarInt(0);
+        } finally {
+            out.close();
+        }
+    }
+    
+    private void flushRowGroup() throws IOException {
+        if (rows == 0) {
+            return;
+        }
+        writeVarInt(rows);
+        for (int column = 0; column < dictionaryEncoded.length; column++) {
+            out.write(dictionaryEncoded[column] ? DICTIONARY : PLAIN);
+            if (dictionaryEncoded[column]) {
+                writeDictionaryColumn(column);
+            } else {
+                writePlainColumn(column);
+            }
+        }
+        for (int row = 0; row < rows; row++) {
+            rowGroup[row] = null;
+        }
+        rows = 0;
+    }
+    
+    private void writeDictionaryColumn(int column) throws IOException {
+        Map<String, Integer> dictionary = dictionaries.get(column);
+        int[] codes = new int[rows];
+        List<String> newEntries = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            String value = rowGroup[row][column];
+            if (value == null) {
+                continue;
+            }
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionary.size() + 1;
+                dictionary.put(value, code);
+                newEntries.add(value);
+            }
+            codes[row] = code;
+        }
+        
+        writeVarInt(newEntries.size());
+        for (String entry : newEntries) {
+            writeString(entry);
+        }
+        for (int code : codes) {
+            writeVarInt(code);
+        }
+        
+        if (dictionary.size() > MAX_DICTIONARY_ENTRIES) {
+            // Mostly unique after all, such as a component column of a huge project
+            dictionaryEncoded[column] = false;
+            dictionaries.set(column, null);
+        }
+    }
+    
+    private void writePlainColumn(int column) throws IOException {
+        for (int row = 0; row < rows; row++) {
+            String value = rowGroup[row][column];
+            if (value == null) {
+                writeVarInt(0);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeVarInt(bytes.length + 1);
+                out.write(bytes);
+            }
+        }
+    }
+    
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+    
+    /**
+     * Unsigned LEB128: seven bits per byte, high bit set on every byte but the last
+     */
+    private void writeVarInt(int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
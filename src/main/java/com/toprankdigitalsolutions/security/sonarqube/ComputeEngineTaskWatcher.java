@@ -0,0 +1,126 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import kong.unirest.core.JsonResponse;
+import kong.unirest.core.UnirestException;
+import kong.unirest.core.json.JSONObject;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Waits for SonarQube to finish processing an uploaded analysis report
+ */
+public class ComputeEngineTaskWatcher {
+    
+    /**
+     * Matches the "More about the report processing at .../api/ce/task?id=..." line printed by the scanner
+     */
+    private static final Pattern TASK_URL = Pattern.compile("/api/ce/task\\?id=([\\w-]+)");
+    
+    private static final long INITIAL_POLL_DELAY_MILLIS = 250;
+    private static final long MAX_POLL_DELAY_MILLIS = 5000;
+    
+    private final SonarQubeClient client;
+    
+    public ComputeEngineTaskWatcher(SonarQubeClient client) {
+        this.client = client;
+    }
+    
+    /**
+     * Extract the Compute Engine task id from a scanner output line, or null when the line has none
+     */
+    public static String parseTaskId(String scannerLine) {
+        Matcher matcher = TASK_URL.matcher(scannerLine);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+    
+    /**
+     * Read the task id from the report-task.txt file the scanner leaves in the project, or null when absent
+     */
+    public static String readReportTaskFile(String projectPath) {
+        File reportTask = new File(projectPath, ".scannerwork/report-task.txt");
+        if (!reportTask.isFile()) {
+            return null;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(reportTask)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            return null;
+        }
+        return properties.getProperty("ceTaskId");
+    }
+    
+    /**
+     * Poll the task with a jittered, growing delay until it leaves the PENDING and IN_PROGRESS states.
+     * Server errors, 429 and failed connections are polled through until the timeout; any other client
+     * error, such as a rejected token or an unknown task, ends the wait at once.
+     *
+     * @return true when the task finished with SUCCESS
+     */
+    public boolean waitForTask(String taskId, long timeoutMillis) throws InterruptedException {
+        System.out.println("⏳ Waiting for SonarQube to process analysis report (task " + taskId + ")");
+        long startTime = System.nanoTime();
+        long deadline = startTime + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        long delayMillis = INITIAL_POLL_DELAY_MILLIS;
+        String lastStatus = null;
+        
+        while (true) {
+            JsonResponse response = null;
+            try {
+                response = client.getCeTask(taskId);
+            } catch (UnirestException e) {
+                System.err.println("⚠️ Task status request failed: " + e.getMessage());
+            }
+            int httpStatus = response == null ? 0 : response.getStatus();
+            if (httpStatus == 200) {
+                JSONObject task = response.getBody().getObject().getJSONObject("task");
+                String status = task.optString("status", "");
+                if (!status.equals(lastStatus)) {
+                    System.out.println("ℹ️ Task " + taskId + ": " + status);
+                    lastStatus = status;
+                }
+                if (!status.equals("PENDING") && !status.equals("IN_PROGRESS")) {
+                    long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+                    if (status.equals("SUCCESS")) {
+                        System.out.println("✅ Analysis report processed " + elapsedMillis + " ms after the scan");
+                        return true;
+                    }
+                    System.err.println("❌ Analysis report processing ended with " + status + ": " 
+                            + task.optString("errorMessage", "no error message"));
+                    return false;
+                }
+            } else if (isPermanentFailure(httpStatus)) {
+                System.err.println("❌ Task status request for " + taskId + " was rejected with HTTP " + httpStatus
+                        + ": " + response.getBody());
+                return false;
+            } else if (response != null) {
+                System.err.println("⚠️ Task status request failed with HTTP " + httpStatus);
+            }
+            
+            long remainingMillis = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMillis <= 0) {
+                System.err.println("❌ Timed out waiting for task " + taskId);
+                return false;
+            }
+            // Jitter keeps many concurrent pipelines from polling in lockstep
+            long sleepMillis = Math.min(remainingMillis, delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1));
+            Thread.sleep(sleepMillis);
+            delayMillis = Math.min(delayMillis * 2, MAX_POLL_DELAY_MILLIS);
+        }
+    }
+    
+    /**
+     * A 4xx other than 429 will not change by asking again
+     */
+    private static boolean isPermanentFailure(int status) {
+        return status >= 400 && status < 500 && status != 429;
+    }
+}
@@ -0,0 +1,82 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes CSV rows field by field straight into a Writer.
+ * <p>
+ * Each field is scanned once: values without a quote, comma, CR or LF are written as they are,
+ * anything else is wrapped in quotes with embedded quotes doubled (RFC 4180). Null is written
+ * as an empty field. One encoder tracks the position inside the current row, so it must not be
+ * shared between threads without external locking.
+ */
+public class CsvEncoder {
+    
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    
+    private final Writer out;
+    private boolean startOfRow = true;
+    
+    public CsvEncoder(Writer out) {
+        this.out = out;
+    }
+    
+    /**
+     * Append one field to the current row
+     */
+    public CsvEncoder field(String value) throws IOException {
+        if (!startOfRow) {
+            out.write(',');
+        }
+        startOfRow = false;
+        if (value == null) {
+            return this;
+        }
+        
+        int length = value.length();
+        int firstSpecial = 0;
+        while (firstSpecial < length && !needsQuoting(value.charAt(firstSpecial))) {
+            firstSpecial++;
+        }
+        if (firstSpecial == length) {
+            out.write(value);
+            return this;
+        }
+        
+        out.write('"');
+        int start = 0;
+        for (int i = firstSpecial; i < length; i++) {
+            if (value.charAt(i) == '"') {
+                out.write(value, start, i + 1 - start);
+                out.write('"');
+                start = i + 1;
+            }
+        }
+        out.write(value, start, length - start);
+        out.write('"');
+        return this;
+    }
+    
+    /**
+     * Terminate the current row
+     */
+    public void endRow() throws IOException {
+        out.write(LINE_SEPARATOR);
+        startOfRow = true;
+    }
+    
+    /**
+     * Write a complete row, such as a header line
+     */
+    public void writeRow(String... values) throws IOException {
+        for (String value : values) {
+            field(value);
+        }
+        endRow();
+    }
+    
+    private static boolean needsQuoting(char c) {
+        return c == '"' || c == ',' || c == '\n' || c == '\r';
+    }
+}
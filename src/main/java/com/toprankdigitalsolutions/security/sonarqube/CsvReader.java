@@ -0,0 +1,68 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads rows written by CsvEncoder, including quoted fields that span several lines
+ */
+public class CsvReader implements Closeable {
+    
+    private final Reader in;
+    
+    /**
+     * @param in a buffered reader; rows are read one character at a time
+     */
+    public CsvReader(Reader in) {
+        this.in = in;
+    }
+    
+    /**
+     * Read the next row, or null at the end of the input
+     */
+    public String[] readRow() throws IOException {
+        int c = in.read();
+        if (c == -1) {
+            return null;
+        }
+        
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted CSV field");
+                }
+                if (c == '"') {
+                    c = in.read();
+                    if (c != '"') {
+                        quoted = false;
+                        continue;
+                    }
+                }
+                field.append((char) c);
+            } else if (c == -1 || c == '\n') {
+                fields.add(field.toString());
+                return fields.toArray(new String[0]);
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c != '\r') {
+                // A bare CR can only be part of a line separator: CsvEncoder quotes fields containing one
+                field.append((char) c);
+            }
+            c = in.read();
+        }
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,40 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes records as CSV rows under a header line, into a plain or compressing Writer
+ */
+public class CsvReportSink<T> implements ReportSink<T> {
+    
+    private final Writer out;
+    private final CsvEncoder csv;
+    private final RowWriter<T> rowWriter;
+    
+    public CsvReportSink(Writer out, String[] headers, RowWriter<T> rowWriter) throws IOException {
+        this.out = out;
+        this.csv = new CsvEncoder(out);
+        this.rowWriter = rowWriter;
+        csv.writeRow(headers);
+    }
+    
+    @Override
+    public void accept(T record) throws IOException {
+        rowWriter.write(record, csv);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+    
+    /**
+     * Writes one record as a complete CSV row, such as Issue::writeCsvRow
+     */
+    @FunctionalInterface
+    public interface RowWriter<T> {
+        
+        void write(T record, CsvEncoder csv) throws IOException;
+    }
+}
@@ -0,0 +1,74 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import kong.unirest.core.json.JSONObject;
+
+import java.time.Instant;
+import java.util.concurrent.Callable;
+
+/**
+ * An operation submitted to the daemon, run asynchronously and polled through /jobs/{id}
+ */
+public class DaemonJob {
+    
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED }
+    
+    private final String id;
+    private final String type;
+    private final String subject;
+    private final Instant submittedAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+    
+    public DaemonJob(String id, String type, String subject) {
+        this.id = id;
+        this.type = type;
+        this.subject = subject;
+    }
+    
+    public String getId() {
+        return id;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * Run the operation, recording its outcome; an operation returns a short result message, or throws
+     */
+    public void run(Callable<String> operation) {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+        try {
+            message = operation.call();
+            status = Status.SUCCEEDED;
+        } catch (Exception e) {
+            message = e.getMessage();
+            status = Status.FAILED;
+        } finally {
+            finishedAt = Instant.now();
+        }
+    }
+    
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("id", id);
+        json.put("type", type);
+        json.put("subject", subject);
+        json.put("status", status.name());
+        json.put("submittedAt", submittedAt.toString());
+        if (startedAt != null) {
+            json.put("startedAt", startedAt.toString());
+        }
+        if (finishedAt != null) {
+            json.put("finishedAt", finishedAt.toString());
+            json.put("durationMillis", finishedAt.toEpochMilli() - startedAt.toEpochMilli());
+        }
+        if (message != null) {
+            json.put("message", message);
+        }
+        return json;
+    }
+}
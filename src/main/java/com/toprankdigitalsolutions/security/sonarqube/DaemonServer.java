@@ -0,0 +1,401 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.core.json.JSONArray;
+import kong.unirest.core.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running process exposing the scanner operations over a local HTTP API. The SonarQube client,
+ * its connection pool and the scanner environment cache stay warm between calls.
+ * <p>
+ * Binding to loopback does not keep out other local users or web pages open in a browser, so every
+ * endpoint but /health needs the token printed at startup, requests from a foreign Origin are refused
+ * and POST bodies must be JSON, which a page cannot send cross-origin without a CORS preflight
+ */
+public class DaemonServer {
+    
+    /**
+     * Request header carrying the token of this daemon run
+     */
+    public static final String TOKEN_HEADER = "X-Daemon-Token";
+    
+    /**
+     * Finished jobs beyond this count are forgotten, oldest first
+     */
+    private static final int MAX_RETAINED_JOBS = 1000;
+    
+    private static final int TOKEN_BYTES = 32;
+    
+    private final SonarQubeClient client;
+    private final ScanOptions scanOptions;
+    private final int port;
+    private final ExecutorService jobPool;
+    private final Map<String, DaemonJob> jobs = new LinkedHashMap<>();
+    private final AtomicLong jobSequence = new AtomicLong();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final Instant startedAt = Instant.now();
+    private final byte[] token = newToken();
+    private volatile Set<String> ownOrigins = Set.of();
+    
+    public DaemonServer(SonarQubeClient client, ScanOptions scanOptions, int port, int workers) {
+        this.client = client;
+        this.scanOptions = scanOptions;
+        this.port = port;
+        this.jobPool = Executors.newFixedThreadPool(workers);
+    }
+    
+    /**
+     * Serve requests on localhost until POST /shutdown is received
+     */
+    public void run() throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        int boundPort = server.getAddress().getPort();
+        ownOrigins = Set.of("http://localhost:" + boundPort, "http://127.0.0.1:" + boundPort);
+        server.setExecutor(Executors.newFixedThreadPool(4));
+        server.createContext("/health", exchange -> respond(exchange, "GET", false, this::health));
+        server.createContext("/projects", exchange -> respond(exchange, "GET", true, this::listProjects));
+        server.createContext("/counts", exchange -> respond(exchange, "GET", true, this::countIssues));
+        server.createContext("/orchestrate", exchange -> respond(exchange, "POST", true, this::orchestrate));
+        server.createContext("/scans", exchange -> respond(exchange, "POST", true, this::scan));
+        server.createContext("/reports", exchange -> respond(exchange, "POST", true, this::exportReports));
+        server.createContext("/jobs", exchange -> respond(exchange, "GET", true, params -> jobStatus(exchange.getRequestURI().getPath())));
+        server.createContext("/shutdown", exchange -> respond(exchange, "POST", true, params -> {
+            stopped.countDown();
+            return new Response(200, new JSONObject().put("status", "STOPPING"));
+        }));
+        server.start();
+        System.out.println("🚀 Daemon listening on http://localhost:" + boundPort);
+        System.out.println("🔑 Send this token in the " + TOKEN_HEADER + " header: " + new String(token, StandardCharsets.US_ASCII));
+        
+        stopped.await();
+        server.stop(1);
+        ((ExecutorService) server.getExecutor()).shutdownNow();
+        jobPool.shutdown();
+        jobPool.awaitTermination(1, TimeUnit.MINUTES);
+        System.out.println("👋 Daemon stopped");
+    }
+    
+    private Response health(Map<String, String> params) {
+        JSONObject json = new JSONObject();
+        json.put("status", "UP");
+        json.put("sonarQubeAvailable", client.reconnect());
+        json.put("uptimeSeconds", Instant.now().getEpochSecond() - startedAt.getEpochSecond());
+        return new Response(200, json);
+    }
+    
+    private Response listProjects(Map<String, String> params) throws IOException {
+        if (!client.reconnect()) {
+            return error(503, "SonarQube server not available");
+        }
+        JSONArray projects = new JSONArray();
+        for (Project project : new ProjectManager(client).fetchAllProjects()) {
+            projects.put(new JSONObject().put("key", project.getKey()).put("name", project.getName()));
+        }
+        return new Response(200, new JSONObject().put("projects", projects));
+    }
+    
+    /**
+     * Issue counts from facets for one project, or for every project when projectKey is absent
+     */
+    private Response countIssues(Map<String, String> params) throws IOException {
+        if (!client.reconnect()) {
+            return error(503, "SonarQube server not available");
+        }
+        IssueCounter counter = new IssueCounter(client);
+        String projectKey = params.get("projectKey");
+        int workers;
+        try {
+            workers = intParameter(params, "workers", 8);
+        } catch (IllegalArgumentException e) {
+            return error(400, e.getMessage());
+        }
+        List<IssueCounts> results = projectKey == null
+                ? counter.countAllProjects(workers)
+                : counter.countAll(Collections.singletonList(projectKey), 1);
+        
+        JSONArray projects = new JSONArray();
+        for (IssueCounts counts : results) {
+            JSONObject json = new JSONObject().put("project", counts.getProjectKey());
+            if (counts.getError() != null) {
+                json.put("error", counts.getError());
+            } else {
+                json.put("total", counts.getTotal())
+                        .put("severities", new JSONObject(counts.getBySeverity()))
+                        .put("types", new JSONObject(counts.getByType()))
+                        .put("rules", new JSONObject(counts.getByRule()))
+                        .put("directories", new JSONObject(counts.getByDirectory()));
+            }
+            projects.put(json);
+        }
+        return new Response(200, new JSONObject().put("projects", projects));
+    }
+    
+    private Response orchestrate(Map<String, String> params) {
+        String path = params.get("path");
+        String name = params.get("name");
+        String key = params.get("key");
+        if (path == null || name == null || key == null) {
+            return error(400, "path, name and key are required");
+        }
+        return submit("orchestrate", key, () -> {
+            if (!new ProjectManager(client).orchestrate(path, name, key)) {
+                throw new IllegalStateException("Orchestration of " + key + " failed");
+            }
+            return "Configuration saved to " + path + "/sq_variables.config";
+        });
+    }
+    
+    private Response scan(Map<String, String> params) {
+        String path = params.get("path");
+        if (path == null) {
+            return error(400, "path is required");
+        }
+        ScanOptions options = scanOptions.copy();
+        options.setForce(Boolean.parseBoolean(params.get("force")));
+        return submit("scan", path, () -> {
+            ScanResult result = new ScannerExecutor(client).scanProject(path, options);
+            if (!result.isSucceeded()) {
+                throw new IllegalStateException(result.getError() != null ? result.getError() : "Scanner exited with code " + result.getExitCode());
+            }
+            return result.isSkipped() ? "Sources unchanged, scan skipped" : "Scanned, Compute Engine task " + result.getCeTaskId();
+        });
+    }
+    
+    private Response exportReports(Map<String, String> params) {
+        String projectKey = params.get("projectKey");
+        if (projectKey == null) {
+            return error(400, "projectKey is required");
+        }
+        ExportOptions options = new ExportOptions();
+        options.setSharded(Boolean.parseBoolean(params.get("sharded")));
+        options.setSingleQuery(Boolean.parseBoolean(params.get("singleQuery")));
+        options.setIncremental(Boolean.parseBoolean(params.get("incremental")));
+        options.setSnapshot(Boolean.parseBoolean(params.getOrDefault("snapshot", "true")));
+        try {
+            options.setConcurrency(intParameter(params, "concurrency", 1));
+            options.setFormat(ReportFormat.fromName(params.getOrDefault("format", ReportFormat.CSV.getName())));
+        } catch (IllegalArgumentException e) {
+            return error(400, e.getMessage());
+        }
+        String outputPath = params.getOrDefault("outputPath", System.getProperty("user.dir"));
+        return submit("reports", projectKey, () -> {
+            if (!new ReportExporter(client, options).exportAllReports(projectKey, outputPath)) {
+                throw new IllegalStateException("Report export of " + projectKey + " failed");
+            }
+            return "Reports written to " + outputPath + "/reports/" + projectKey;
+        });
+    }
+    
+    /**
+     * GET /jobs lists every retained job, GET /jobs/{id} returns one
+     */
+    private Response jobStatus(String requestPath) {
+        String id = requestPath.replaceFirst("^/jobs/?", "");
+        synchronized (jobs) {
+            if (id.isEmpty()) {
+                JSONArray list = new JSONArray();
+                for (DaemonJob job : jobs.values()) {
+                    list.put(job.toJson());
+                }
+                return new Response(200, new JSONObject().put("jobs", list));
+            }
+            DaemonJob job = jobs.get(id);
+            return job == null ? error(404, "Unknown job " + id) : new Response(200, job.toJson());
+        }
+    }
+    
+    /**
+     * Queue an operation on the job pool and answer 202 with the job to poll
+     */
+    private Response submit(String type, String subject, Callable<String> operation) {
+        if (!client.reconnect()) {
+            return error(503, "SonarQube server not available");
+        }
+        DaemonJob job = new DaemonJob(String.valueOf(jobSequence.incrementAndGet()), type, subject);
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+            forgetOldJobs();
+        }
+        jobPool.execute(() -> job.run(operation));
+        return new Response(202, job.toJson());
+    }
+    
+    private void forgetOldJobs() {
+        List<String> finished = new ArrayList<>();
+        for (DaemonJob job : jobs.values()) {
+            if (job.getStatus() == DaemonJob.Status.SUCCEEDED || job.getStatus() == DaemonJob.Status.FAILED) {
+                finished.add(job.getId());
+            }
+        }
+        for (int i = 0; i < finished.size() - MAX_RETAINED_JOBS; i++) {
+            jobs.remove(finished.get(i));
+        }
+    }
+    
+    /**
+     * @param authenticated whether the request must carry the token of this daemon run
+     */
+    private void respond(HttpExchange exchange, String method, boolean authenticated, Handler handler) throws IOException {
+        Response response;
+        try {
+            Response rejection = reject(exchange, method, authenticated);
+            response = rejection != null ? rejection : handle(exchange, handler);
+        } catch (Exception e) {
+            response = error(500, String.valueOf(e.getMessage()));
+        }
+        
+        byte[] body = response.body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    /**
+     * The error answer to a request that may not reach its handler, or null when it may
+     */
+    private Response reject(HttpExchange exchange, String method, boolean authenticated) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            return error(405, "Use " + method);
+        }
+        String origin = exchange.getRequestHeaders().getFirst("Origin");
+        if (origin != null && !ownOrigins.contains(origin)) {
+            return error(403, "Cross-origin requests are not allowed");
+        }
+        if (authenticated && !hasToken(exchange.getRequestHeaders().getFirst(TOKEN_HEADER))) {
+            return error(401, "Missing or wrong " + TOKEN_HEADER + " header; the token is printed when the daemon starts");
+        }
+        if (method.equals("POST") && !isJson(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+            return error(415, "Send POST parameters as a JSON object with Content-Type: application/json");
+        }
+        return null;
+    }
+    
+    private Response handle(HttpExchange exchange, Handler handler) throws Exception {
+        Map<String, String> params;
+        try {
+            params = readParameters(exchange);
+        } catch (IllegalArgumentException e) {
+            return error(400, e.getMessage());
+        }
+        return handler.handle(params);
+    }
+    
+    private boolean hasToken(String header) {
+        return header != null && MessageDigest.isEqual(token, header.trim().getBytes(StandardCharsets.US_ASCII));
+    }
+    
+    private static boolean isJson(String contentType) {
+        return contentType != null && contentType.trim().matches("(?i)application/json\\s*(;.*)?");
+    }
+    
+    /**
+     * Random URL-safe text, new on every start
+     */
+    private static byte[] newToken() {
+        byte[] secret = new byte[TOKEN_BYTES];
+        new SecureRandom().nextBytes(secret);
+        return Base64.getUrlEncoder().withoutPadding().encode(secret);
+    }
+    
+    /**
+     * Query string parameters, plus the members of a JSON object POST body
+     */
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        String body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = new String(in.readAllBytes(), StandardCharsets.UTF_8).trim();
+        }
+        if (!body.isEmpty()) {
+            JSONObject json;
+            try {
+                json = new JSONObject(body);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("The request body is not a JSON object: " + e.getMessage());
+            }
+            for (String name : json.keySet()) {
+                params.put(name, json.optString(name));
+            }
+        }
+        return params;
+    }
+    
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * A whole number parameter of at least 1, or the default when it is absent
+     */
+    private static int intParameter(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            int number = Integer.parseInt(value.trim());
+            if (number >= 1) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below like an out of range value
+        }
+        throw new IllegalArgumentException(name + " must be a whole number of at least 1, got: " + value);
+    }
+    
+    private static Response error(int status, String message) {
+        return new Response(status, new JSONObject().put("error", message));
+    }
+    
+    @FunctionalInterface
+    private interface Handler {
+        Response handle(Map<String, String> params) throws Exception;
+    }
+    
+    private static class Response {
+        private final int status;
+        private final JSONObject body;
+        
+        private Response(int status, JSONObject body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.Arrays;
+
+/**
+ * Column of repeated strings stored as int codes into its own StringDictionary
+ */
+public class DictionaryColumn {
+    
+    private final StringDictionary dictionary = new StringDictionary();
+    private int[] codes;
+    private int size;
+    
+    public DictionaryColumn(int initialCapacity) {
+        this.codes = new int[Math.max(1, initialCapacity)];
+    }
+    
+    public void add(String value) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        codes[size++] = dictionary.encode(value);
+    }
+    
+    public String get(int row) {
+        return dictionary.decode(codes[row]);
+    }
+    
+    /**
+     * Dictionary code of a row, for grouping and counting without materializing the string
+     */
+    public int getCode(int row) {
+        return codes[row];
+    }
+    
+    public StringDictionary getDictionary() {
+        return dictionary;
+    }
+    
+    public long estimatedBytes() {
+        return 4L * codes.length;
+    }
+}
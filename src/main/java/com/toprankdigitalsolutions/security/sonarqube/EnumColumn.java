@@ -0,0 +1,67 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Column of a closed vocabulary such as severity, stored as one byte per row. A value the enum does not
+ * know, for instance one added by a newer SonarQube, is kept as text on the side so nothing is lost.
+ */
+public class EnumColumn<E extends Enum<E>> {
+    
+    private static final byte NULL_CODE = 0;
+    private static final byte OTHER_CODE = -1;
+    
+    private final E[] constants;
+    private final Map<String, E> byName = new HashMap<>();
+    private final Map<Integer, String> otherValues = new HashMap<>();
+    private byte[] codes;
+    private int size;
+    
+    public EnumColumn(Class<E> type, int initialCapacity) {
+        this.constants = type.getEnumConstants();
+        for (E constant : constants) {
+            byName.put(constant.name(), constant);
+        }
+        this.codes = new byte[Math.max(1, initialCapacity)];
+    }
+    
+    public void add(String value) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, size * 2);
+        }
+        if (value == null) {
+            codes[size] = NULL_CODE;
+        } else {
+            E constant = byName.get(value);
+            if (constant != null) {
+                codes[size] = (byte) (constant.ordinal() + 1);
+            } else {
+                codes[size] = OTHER_CODE;
+                otherValues.put(size, value);
+            }
+        }
+        size++;
+    }
+    
+    public String get(int row) {
+        byte code = codes[row];
+        if (code == OTHER_CODE) {
+            return otherValues.get(row);
+        }
+        return code == NULL_CODE ? null : constants[code - 1].name();
+    }
+    
+    /**
+     * Enum value of a row, or null when it is missing or not one of the constants
+     */
+    public E getEnum(int row) {
+        byte code = codes[row];
+        return code > 0 ? constants[code - 1] : null;
+    }
+    
+    public long estimatedBytes() {
+        return codes.length + 64L * otherValues.size();
+    }
+}
@@ -0,0 +1,45 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+/**
+ * Tuning switches for a report export
+ */
+@Data
+public class ExportOptions {
+    /**
+     * Split issue queries into shards so exports are not capped at 10,000 issues per severity
+     */
+    private boolean sharded = false;
+    
+    /**
+     * Number of shards fetched in parallel when sharding is enabled
+     */
+    private int shardWorkers = 4;
+    
+    /**
+     * Maximum number of severity and hotspot exports running at the same time (1 runs them in sequence)
+     */
+    private int concurrency = 1;
+    
+    /**
+     * Fetch all severities with one query and route each issue to its severity CSV. The query is always
+     * sharded, since the search cap would otherwise apply to all severities together
+     */
+    private boolean singleQuery = false;
+    
+    /**
+     * Only fetch issues updated since the last export and merge them into the existing CSVs
+     */
+    private boolean incremental = false;
+    
+    /**
+     * File format of the reports
+     */
+    private ReportFormat format = ReportFormat.CSV;
+    
+    /**
+     * Save a key-sorted snapshot of the exported issues so later exports can be compared with diffReports
+     */
+    private boolean snapshot = true;
+}
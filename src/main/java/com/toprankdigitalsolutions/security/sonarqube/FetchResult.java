@@ -0,0 +1,36 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+/**
+ * Outcome of fetching every issue of a query
+ */
+public class FetchResult {
+    
+    private final int fetched;
+    private final int missed;
+    
+    FetchResult(int fetched, int missed) {
+        this.fetched = fetched;
+        this.missed = missed;
+    }
+    
+    /**
+     * Number of issues handed to the sink
+     */
+    public int getFetched() {
+        return fetched;
+    }
+    
+    /**
+     * Matching issues left out because SonarQube stops paging at its search result cap
+     */
+    public int getMissed() {
+        return missed;
+    }
+    
+    /**
+     * Whether the sink received only part of the issues matching the query
+     */
+    public boolean isTruncated() {
+        return missed > 0;
+    }
+}
@@ -2,11 +2,21 @@ package com.toprankdigitalsolutions.security.sonarqube;
 
 import lombok.Data;
 
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 
 @Data
 public class Hotspot {
+
+    /**
+     * Column names of a hotspot report, in the order of toValues()
+     */
+    public static final String[] FIELDS = {
+        "key", "component", "project", "securityCategory", "vulnerabilityProbability",
+        "status", "line", "message", "author", "creationDate", "updateDate"
+    };
+
     private String key;
     private String component;
     private String project;
@@ -19,22 +29,49 @@ public class Hotspot {
     private String creationDate;
     private String updateDate;
 
+    /**
+     * Write this hotspot as one CSV row
+     */
+    public void writeCsvRow(CsvEncoder csv) throws IOException {
+        writeCsvFields(csv);
+        csv.endRow();
+    }
+
+    /**
+     * Render this hotspot as a CSV row without the line separator
+     */
     public String toCsvRow() {
-        return Stream.of(
-            key,
-            component,
-            project,
-            securityCategory,
-            vulnerabilityProbability,
-            status,
-            line,
-            message,
-            author,
-            creationDate,
-            updateDate
-        )
-        .map(value -> value.replaceAll("\"", "\"\""))
-        .map(value -> Stream.of("\"", ",").anyMatch(value::contains) ? "\"" + value + "\"" : value)
-        .collect(Collectors.joining(","));
+        StringWriter row = new StringWriter();
+        try {
+            writeCsvFields(new CsvEncoder(row));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row.toString();
+    }
+
+    /**
+     * Field values in the order of FIELDS
+     */
+    public String[] toValues() {
+        return new String[] {
+            key, component, project, securityCategory, vulnerabilityProbability,
+            status, line, message, author, creationDate, updateDate
+        };
+    }
+
+    private void writeCsvFields(CsvEncoder csv) throws IOException {
+        csv
+                .field(key)
+                .field(component)
+                .field(project)
+                .field(securityCategory)
+                .field(vulnerabilityProbability)
+                .field(status)
+                .field(line)
+                .field(message)
+                .field(author)
+                .field(creationDate)
+                .field(updateDate);
     }
 }
@@ -0,0 +1,157 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+
+/**
+ * Compact, column-oriented holder for every hotspot of an export; the hotspot counterpart of IssueTable
+ */
+public class HotspotTable implements RecordSink<Hotspot> {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    private final PackedStringColumn key;
+    private final DictionaryColumn component;
+    private final DictionaryColumn project;
+    private final DictionaryColumn securityCategory;
+    private final EnumColumn<VulnerabilityProbability> vulnerabilityProbability;
+    private final DictionaryColumn status;
+    private final IntColumn line;
+    private final DictionaryColumn message;
+    private final DictionaryColumn author;
+    private final DictionaryColumn creationDate;
+    private final DictionaryColumn updateDate;
+    private int size;
+    
+    public HotspotTable() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    public HotspotTable(int initialCapacity) {
+        key = new PackedStringColumn(initialCapacity, 20);
+        component = new DictionaryColumn(initialCapacity);
+        project = new DictionaryColumn(initialCapacity);
+        securityCategory = new DictionaryColumn(initialCapacity);
+        vulnerabilityProbability = new EnumColumn<>(VulnerabilityProbability.class, initialCapacity);
+        status = new DictionaryColumn(initialCapacity);
+        line = new IntColumn(initialCapacity);
+        message = new DictionaryColumn(initialCapacity);
+        author = new DictionaryColumn(initialCapacity);
+        creationDate = new DictionaryColumn(initialCapacity);
+        updateDate = new DictionaryColumn(initialCapacity);
+    }
+    
+    @Override
+    public void accept(Hotspot hotspot) {
+        add(hotspot);
+    }
+    
+    /**
+     * Append a hotspot as a new row
+     */
+    public int add(Hotspot hotspot) {
+        key.add(hotspot.getKey());
+        component.add(hotspot.getComponent());
+        project.add(hotspot.getProject());
+        securityCategory.add(hotspot.getSecurityCategory());
+        vulnerabilityProbability.add(hotspot.getVulnerabilityProbability());
+        status.add(hotspot.getStatus());
+        line.add(hotspot.getLine());
+        message.add(hotspot.getMessage());
+        author.add(hotspot.getAuthor());
+        creationDate.add(hotspot.getCreationDate());
+        updateDate.add(hotspot.getUpdateDate());
+        return size++;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Materialize one row as a Hotspot
+     */
+    public Hotspot get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+        Hotspot hotspot = new Hotspot();
+        hotspot.setKey(key.get(row));
+        hotspot.setComponent(component.get(row));
+        hotspot.setProject(project.get(row));
+        hotspot.setSecurityCategory(securityCategory.get(row));
+        hotspot.setVulnerabilityProbability(vulnerabilityProbability.get(row));
+        hotspot.setStatus(status.get(row));
+        hotspot.setLine(line.get(row));
+        hotspot.setMessage(message.get(row));
+        hotspot.setAuthor(author.get(row));
+        hotspot.setCreationDate(creationDate.get(row));
+        hotspot.setUpdateDate(updateDate.get(row));
+        return hotspot;
+    }
+    
+    /**
+     * Hand every row, in table order, to a sink as a Hotspot view
+     */
+    public void forEach(RecordSink<Hotspot> sink) throws IOException {
+        for (int row = 0; row < size; row++) {
+            sink.accept(get(row));
+        }
+    }
+    
+    /**
+     * Row numbers ordered by hotspot key
+     */
+    public int[] rowsOrderedByKey() {
+        return key.sortedRows();
+    }
+    
+    /**
+     * Number of hotspots per value of one of this table's dictionary columns, indexed by dictionary code
+     * (index 0 counts nulls)
+     */
+    public int[] countBy(DictionaryColumn column) {
+        int[] counts = new int[column.getDictionary().size() + 1];
+        for (int row = 0; row < size; row++) {
+            counts[column.getCode(row)]++;
+        }
+        return counts;
+    }
+    
+    public String getKey(int row) {
+        return key.get(row);
+    }
+    
+    public VulnerabilityProbability getVulnerabilityProbability(int row) {
+        return vulnerabilityProbability.getEnum(row);
+    }
+    
+    public int getLine(int row) {
+        return line.getInt(row);
+    }
+    
+    public PackedStringColumn getKeyColumn() {
+        return key;
+    }
+    
+    public DictionaryColumn getComponentColumn() {
+        return component;
+    }
+    
+    public DictionaryColumn getSecurityCategoryColumn() {
+        return securityCategory;
+    }
+    
+    public DictionaryColumn getStatusColumn() {
+        return status;
+    }
+    
+    /**
+     * Heap held by the column arrays, excluding the dictionary entries
+     */
+    public long estimatedBytes() {
+        return key.estimatedBytes() + component.estimatedBytes() + project.estimatedBytes()
+                + securityCategory.estimatedBytes() + vulnerabilityProbability.estimatedBytes()
+                + status.estimatedBytes() + line.estimatedBytes() + message.estimatedBytes()
+                + author.estimatedBytes() + creationDate.estimatedBytes() + updateDate.estimatedBytes();
+    }
+}
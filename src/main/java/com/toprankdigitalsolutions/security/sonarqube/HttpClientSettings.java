@@ -0,0 +1,96 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+/**
+ * Timeout, protocol, concurrency and retry settings of the HTTP transport used by SonarQubeClient.
+ * <p>
+ * Every setting can be overridden with a JVM system property, for example
+ * {@code -Dsonarqube.http.maxConcurrency=64}. The connection pool is process-wide, see configureConnectionPool().
+ */
+@Data
+public class HttpClientSettings {
+    
+    private static final int DEFAULT_MAX_CONNECTIONS = 32;
+    
+    private static final int DEFAULT_KEEP_ALIVE_SECONDS = 60;
+    
+    /**
+     * Time allowed to open a connection
+     */
+    private int connectTimeoutMillis = 5000;
+    
+    /**
+     * Time allowed for a whole request, including reading a large search page
+     */
+    private int requestTimeoutMillis = 120000;
+    
+    /**
+     * Negotiate HTTP/2 instead of HTTP/1.1
+     */
+    private boolean http2 = false;
+    
+    /**
+     * Ask for gzip-compressed responses
+     */
+    private boolean compression = true;
+    
+    /**
+     * Requests allowed in flight at start; the limiter then adapts between the min and max
+     */
+    private int initialConcurrency = 4;
+    
+    private int minConcurrency = 1;
+    
+    private int maxConcurrency = 32;
+    
+    /**
+     * Extra attempts for an idempotent GET rejected with 429/502/503/504 or a failed connection
+     */
+    private int maxRetries = 4;
+    
+    /**
+     * Backoff before the first retry; doubled for every further retry, with full jitter
+     */
+    private int retryBaseDelayMillis = 500;
+    
+    /**
+     * Upper bound of a single backoff, also applied to Retry-After
+     */
+    private int retryMaxDelayMillis = 30000;
+    
+    /**
+     * Defaults, overridden by any sonarqube.http.* system property that is set
+     */
+    public static HttpClientSettings fromSystemProperties() {
+        HttpClientSettings settings = new HttpClientSettings();
+        settings.setConnectTimeoutMillis(Integer.getInteger("sonarqube.http.connectTimeoutMillis", settings.getConnectTimeoutMillis()));
+        settings.setRequestTimeoutMillis(Integer.getInteger("sonarqube.http.requestTimeoutMillis", settings.getRequestTimeoutMillis()));
+        settings.setHttp2(Boolean.parseBoolean(System.getProperty("sonarqube.http.http2", String.valueOf(settings.isHttp2()))));
+        settings.setCompression(Boolean.parseBoolean(System.getProperty("sonarqube.http.compression", String.valueOf(settings.isCompression()))));
+        settings.setInitialConcurrency(Integer.getInteger("sonarqube.http.initialConcurrency", settings.getInitialConcurrency()));
+        settings.setMinConcurrency(Integer.getInteger("sonarqube.http.minConcurrency", settings.getMinConcurrency()));
+        settings.setMaxConcurrency(Integer.getInteger("sonarqube.http.maxConcurrency", settings.getMaxConcurrency()));
+        settings.setMaxRetries(Integer.getInteger("sonarqube.http.maxRetries", settings.getMaxRetries()));
+        settings.setRetryBaseDelayMillis(Integer.getInteger("sonarqube.http.retryBaseDelayMillis", settings.getRetryBaseDelayMillis()));
+        settings.setRetryMaxDelayMillis(Integer.getInteger("sonarqube.http.retryMaxDelayMillis", settings.getRetryMaxDelayMillis()));
+        return settings;
+    }
+    
+    /**
+     * Size the JDK HttpClient connection pool from sonarqube.http.maxConnections and
+     * sonarqube.http.keepAliveSeconds. The JDK reads these once, when its HTTP classes initialize, and
+     * applies them to every HttpClient of the process, so they are set once at startup before any client
+     * exists. jdk.httpclient.* properties given on the command line win.
+     */
+    public static void configureConnectionPool() {
+        setIfAbsent("jdk.httpclient.connectionPoolSize", Integer.getInteger("sonarqube.http.maxConnections", DEFAULT_MAX_CONNECTIONS));
+        setIfAbsent("jdk.httpclient.keepalive.timeout", Integer.getInteger("sonarqube.http.keepAliveSeconds", DEFAULT_KEEP_ALIVE_SECONDS));
+    }
+    
+    private static void setIfAbsent(String property, int value) {
+        if (System.getProperty(property) == null) {
+            System.setProperty(property, String.valueOf(value));
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.Arrays;
+
+/**
+ * Column of line numbers and offsets held as primitive ints. SonarQube sends them as JSON numbers,
+ * which the decoder keeps as text; missing or non-numeric values read back as null.
+ */
+public class IntColumn {
+    
+    public static final int NULL_VALUE = Integer.MIN_VALUE;
+    
+    private int[] values;
+    private int size;
+    
+    public IntColumn(int initialCapacity) {
+        this.values = new int[Math.max(1, initialCapacity)];
+    }
+    
+    public void add(String value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = parse(value);
+    }
+    
+    public String get(int row) {
+        int value = values[row];
+        return value == NULL_VALUE ? null : Integer.toString(value);
+    }
+    
+    /**
+     * Value of a row, NULL_VALUE when it is missing
+     */
+    public int getInt(int row) {
+        return values[row];
+    }
+    
+    public long estimatedBytes() {
+        return 4L * values.length;
+    }
+    
+    private static int parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return NULL_VALUE;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return NULL_VALUE;
+        }
+    }
+}
@@ -2,14 +2,26 @@ package com.toprankdigitalsolutions.security.sonarqube;
 
 import lombok.Data;
 
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 
 /**
  * For the POC it's missing "flows" and "tags". These two are array attributes.
  */
 @Data
 public class Issue {
+
+    /**
+     * Column names of an issue report, in the order of toValues()
+     */
+    public static final String[] FIELDS = {
+        "key", "rule", "severity", "component", "project", "line", "hash",
+        "textRange_startLine", "textRange_endLine", "textRange_startOffset",
+        "textRange_endOffset", "status", "message", "effort", "debt",
+        "author", "creationDate", "updateDate", "type", "scope"
+    };
+
     private String key;
     private String rule;
     private String severity;
@@ -31,30 +43,93 @@ public class Issue {
     private String type;
     private String scope;
 
+    /**
+     * Write this issue as one CSV row
+     */
+    public void writeCsvRow(CsvEncoder csv) throws IOException {
+        writeCsvFields(csv);
+        csv.endRow();
+    }
+
+    /**
+     * Render this issue as a CSV row without the line separator
+     */
     public String toCsvRow() {
-        return Stream.of(
-                        key,
-                        rule,
-                        severity,
-                        component,
-                        project,
-                        line,
-                        hash,
-                        textRange_startLine,
-                        textRange_endLine,
-                        textRange_startOffset,
-                        textRange_endOffset,
-                        status,
-                        message,
-                        effort,
-                        debt,
-                        author,
-                        creationDate,
-                        updateDate,
-                        type,
-                        scope)
-                .map(value -> value.replaceAll("\"", "\"\""))
-                .map(value -> Stream.of("\"", ",").anyMatch(value::contains) ? "\"" + value + "\"" : value)
-                .collect(Collectors.joining(","));
+        StringWriter row = new StringWriter();
+        try {
+            writeCsvFields(new CsvEncoder(row));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return row.toString();
+    }
+
+    /**
+     * Field values in the order of FIELDS
+     */
+    public String[] toValues() {
+        return new String[] {
+            key, rule, severity, component, project, line, hash,
+            textRange_startLine, textRange_endLine, textRange_startOffset,
+            textRange_endOffset, status, message, effort, debt,
+            author, creationDate, updateDate, type, scope
+        };
+    }
+
+    /**
+     * Rebuild an issue from values in the order of FIELDS, such as a row of an issue CSV.
+     * CSV does not distinguish empty from missing values, so empty values become null.
+     */
+    public static Issue fromValues(String[] values) {
+        String[] v = new String[FIELDS.length];
+        for (int i = 0; i < v.length && i < values.length; i++) {
+            v[i] = values[i] == null || values[i].isEmpty() ? null : values[i];
+        }
+        Issue issue = new Issue();
+        issue.setKey(v[0]);
+        issue.setRule(v[1]);
+        issue.setSeverity(v[2]);
+        issue.setComponent(v[3]);
+        issue.setProject(v[4]);
+        issue.setLine(v[5]);
+        issue.setHash(v[6]);
+        issue.setTextRange_startLine(v[7]);
+        issue.setTextRange_endLine(v[8]);
+        issue.setTextRange_startOffset(v[9]);
+        issue.setTextRange_endOffset(v[10]);
+        issue.setStatus(v[11]);
+        issue.setMessage(v[12]);
+        issue.setEffort(v[13]);
+        issue.setDebt(v[14]);
+        issue.setAuthor(v[15]);
+        issue.setCreationDate(v[16]);
+        issue.setUpdateDate(v[17]);
+        issue.setType(v[18]);
+        issue.setScope(v[19]);
+        return issue;
+    }
+
+    private void writeCsvFields(CsvEncoder csv) throws IOException {
+        csv
+                .field(key)
+                .field(rule)
+                .field(severity)
+                .field(component)
+                .field(project)
+                .field(line)
+                .field(hash)
+                .field(textRange_startLine)
+                .field(textRange_endLine)
+                .field(textRange_startOffset)
+                .field(textRange_endOffset)
+                .field(status)
+                .field(message)
+                .field(effort)
+                .field(debt)
+                .field(author)
+                .field(creationDate)
+                .field(updateDate)
+                .field(type)
+                .field(scope);
     }
 }
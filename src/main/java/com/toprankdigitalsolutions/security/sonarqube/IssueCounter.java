@@ -0,0 +1,193 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import kong.unirest.core.JsonResponse;
+import kong.unirest.core.json.JSONArray;
+import kong.unirest.core.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the issues of projects from /api/issues/search facets with a page size of 1, so no issue
+ * bodies are downloaded and each project costs one request
+ */
+public class IssueCounter {
+    
+    static final String FACETS = "severities,types,rules,directories";
+    
+    // Writing the counts to System.out must not close it
+    private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    
+    private final SonarQubeClient client;
+    
+    public IssueCounter(SonarQubeClient client) {
+        this.client = client;
+    }
+    
+    /**
+     * Count the issues of one project
+     */
+    public IssueCounts count(String projectKey) throws IOException {
+        long startTime = System.nanoTime();
+        JsonResponse response = client.searchIssueFacets(IssueQuery.forProject(projectKey), FACETS);
+        if (response.getStatus() != 200) {
+            throw new IOException("Failed to count issues of " + projectKey + ". Response: " + response.getBody());
+        }
+        
+        JSONObject responseBody = response.getBody().getObject();
+        IssueCounts counts = new IssueCounts();
+        counts.setProjectKey(projectKey);
+        counts.setTotal(IssueFetcher.readTotal(responseBody));
+        JSONArray facets = responseBody.optJSONArray("facets");
+        for (int i = 0; facets != null && i < facets.length(); i++) {
+            JSONObject facet = facets.getJSONObject(i);
+            Map<String, Integer> values = facetValues(counts, facet.optString("property"));
+            JSONArray facetValues = facet.optJSONArray("values");
+            for (int j = 0; values != null && facetValues != null && j < facetValues.length(); j++) {
+                JSONObject value = facetValues.getJSONObject(j);
+                values.put(value.optString("val"), value.optInt("count", 0));
+            }
+        }
+        counts.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return counts;
+    }
+    
+    /**
+     * Count every project of the SonarQube instance
+     */
+    public List<IssueCounts> countAllProjects(int workers) throws IOException {
+        List<String> projectKeys = new ArrayList<>();
+        for (Project project : new ProjectManager(client).fetchAllProjects()) {
+            projectKeys.add(project.getKey());
+        }
+        return countAll(projectKeys, workers);
+    }
+    
+    /**
+     * Count several projects, up to workers projects at a time, in the order given.
+     * A project that cannot be counted is returned with its error set.
+     */
+    public List<IssueCounts> countAll(List<String> projectKeys, int workers) throws IOException {
+        List<IssueCounts> results = new ArrayList<>();
+        if (projectKeys.isEmpty()) {
+            return results;
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, Math.min(workers, projectKeys.size())));
+        try {
+            List<Future<IssueCounts>> futures = new ArrayList<>();
+            for (String projectKey : projectKeys) {
+                futures.add(pool.submit(() -> countOrFail(projectKey)));
+            }
+            for (Future<IssueCounts> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Issue count interrupted", e);
+        } catch (Exception e) {
+            throw new IOException("Issue count failed: " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Print the counts of a project in a readable layout
+     */
+    public static void print(IssueCounts counts) {
+        if (counts.getError() != null) {
+            System.err.println("❌ " + counts.getProjectKey() + ": " + counts.getError());
+            return;
+        }
+        System.out.println("📊 " + counts.getProjectKey() + ": " + counts.getTotal() + " issues (" + counts.getDurationMillis() + " ms)");
+        System.out.println("   Severities: " + format(counts.getBySeverity(), Integer.MAX_VALUE));
+        System.out.println("   Types:      " + format(counts.getByType(), Integer.MAX_VALUE));
+        System.out.println("   Top rules:  " + format(counts.getByRule(), 10));
+        System.out.println("   Top dirs:   " + format(counts.getByDirectory(), 10));
+    }
+    
+    /**
+     * Write the counts as JSON Lines, one object per project
+     */
+    public static void writeJson(List<IssueCounts> results, OutputStream out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+            for (IssueCounts counts : results) {
+                json.writeStartObject();
+                json.writeStringField("project", counts.getProjectKey());
+                if (counts.getError() != null) {
+                    json.writeStringField("error", counts.getError());
+                } else {
+                    json.writeNumberField("total", counts.getTotal());
+                    writeJsonCounts(json, "severities", counts.getBySeverity());
+                    writeJsonCounts(json, "types", counts.getByType());
+                    writeJsonCounts(json, "rules", counts.getByRule());
+                    writeJsonCounts(json, "directories", counts.getByDirectory());
+                }
+                json.writeEndObject();
+            }
+            if (!results.isEmpty()) {
+                json.writeRaw('\n');
+            }
+        }
+    }
+    
+    private static void writeJsonCounts(JsonGenerator json, String name, Map<String, Integer> counts) throws IOException {
+        json.writeObjectFieldStart(name);
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            json.writeNumberField(count.getKey(), count.getValue());
+        }
+        json.writeEndObject();
+    }
+    
+    private IssueCounts countOrFail(String projectKey) {
+        try {
+            return count(projectKey);
+        } catch (Exception e) {
+            IssueCounts counts = new IssueCounts();
+            counts.setProjectKey(projectKey);
+            counts.setError(e.getMessage());
+            return counts;
+        }
+    }
+    
+    private static Map<String, Integer> facetValues(IssueCounts counts, String facet) {
+        switch (facet) {
+            case "severities":
+                return counts.getBySeverity();
+            case "types":
+                return counts.getByType();
+            case "rules":
+                return counts.getByRule();
+            case "directories":
+                return counts.getByDirectory();
+            default:
+                return null;
+        }
+    }
+    
+    private static String format(Map<String, Integer> counts, int limit) {
+        StringBuilder text = new StringBuilder();
+        for (Map.Entry<String, Integer> count : counts.entrySet()) {
+            if (limit-- == 0) {
+                text.append(", ...");
+                break;
+            }
+            text.append(text.length() == 0 ? "" : ", ").append(count.getKey()).append('=').append(count.getValue());
+        }
+        return text.length() == 0 ? "-" : text.toString();
+    }
+}
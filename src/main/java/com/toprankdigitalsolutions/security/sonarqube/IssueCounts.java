@@ -0,0 +1,30 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Issue counts of one project, read from the facets of a single issue search
+ */
+@Data
+public class IssueCounts {
+    private String projectKey;
+    private int total;
+    
+    /**
+     * Facet values in the order SonarQube returns them, most frequent first. The rules and directories
+     * facets are limited by SonarQube to their most frequent values
+     */
+    private Map<String, Integer> bySeverity = new LinkedHashMap<>();
+    private Map<String, Integer> byType = new LinkedHashMap<>();
+    private Map<String, Integer> byRule = new LinkedHashMap<>();
+    private Map<String, Integer> byDirectory = new LinkedHashMap<>();
+    private long durationMillis;
+    
+    /**
+     * Why the project could not be counted, or null when it was
+     */
+    private String error;
+}
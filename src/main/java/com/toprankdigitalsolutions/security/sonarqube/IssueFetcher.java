@@ -0,0 +1,131 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import kong.unirest.core.JsonResponse;
+import kong.unirest.core.json.JSONArray;
+import kong.unirest.core.json.JSONObject;
+
+import java.io.IOException;
+import java.time.OffsetDateTime;
+
+/**
+ * Pages through /api/issues/search results and hands every issue to a sink
+ */
+public class IssueFetcher {
+    
+    private final SonarQubeClient client;
+    
+    public IssueFetcher(SonarQubeClient client) {
+        this.client = client;
+    }
+    
+    /**
+     * Fetch every page of a query at the largest page size, up to the search result cap
+     *
+     * @return the number of issues handed to the sink and of those beyond the cap
+     */
+    public FetchResult fetchAll(IssueQuery query, RecordSink<Issue> sink) throws IOException {
+        int fetched = 0;
+        int total;
+        int page = 1;
+        do {
+            SearchPage searchPage = client.streamIssues(query, page, SonarQubeClient.MAX_PAGE_SIZE, sink);
+            if (searchPage.getFailure() != null) {
+                throw new IOException("Failed to fetch issues (page " + page + ") for: " + query + ". "
+                        + searchPage.getFailure().getMessage(), searchPage.getFailure());
+            }
+            total = searchPage.getTotal();
+            if (searchPage.getCount() == 0) {
+                break;
+            }
+            
+            fetched += searchPage.getCount();
+            page++;
+        } while (fetched < total && page * SonarQubeClient.MAX_PAGE_SIZE <= SonarQubeClient.MAX_SEARCH_RESULTS);
+        
+        if (fetched < total) {
+            System.err.println("⚠️ SonarQube stops paging at " + SonarQubeClient.MAX_SEARCH_RESULTS
+                    + " results, only " + fetched + " of " + total + " issues were fetched for: " + query);
+        }
+        return new FetchResult(fetched, Math.max(0, total - fetched));
+    }
+    
+    /**
+     * Fetch the issues of a query updated at or after the given time, newest first.
+     * Paging stops at the first older issue; an issue without an update date counts as updated.
+     *
+     * @return number of issues handed to the sink, or -1 when the updates do not fit under the search cap
+     */
+    public int fetchUpdatedSince(IssueQuery query, OffsetDateTime since, RecordSink<Issue> sink) throws IOException {
+        IssueQuery newestFirst = query.withSort("UPDATE_DATE", false);
+        int[] fetched = {0};
+        boolean[] reachedOlder = {false};
+        RecordSink<Issue> updatedSink = issue -> {
+            if (issue.getUpdateDate() != null
+                    && OffsetDateTime.parse(issue.getUpdateDate(), IssueQuery.SONAR_DATE_TIME).isBefore(since)) {
+                reachedOlder[0] = true;
+                return;
+            }
+            sink.accept(issue);
+            fetched[0]++;
+        };
+        
+        int page = 1;
+        while (!reachedOlder[0]) {
+            if (page * SonarQubeClient.MAX_PAGE_SIZE > SonarQubeClient.MAX_SEARCH_RESULTS) {
+                return -1;
+            }
+            
+            SearchPage searchPage = client.streamIssues(newestFirst, page, SonarQubeClient.MAX_PAGE_SIZE, updatedSink);
+            if (searchPage.getFailure() != null) {
+                throw new IOException("Failed to fetch updated issues (page " + page + ") for: " + query + ". "
+                        + searchPage.getFailure().getMessage(), searchPage.getFailure());
+            }
+            if (searchPage.getCount() < SonarQubeClient.MAX_PAGE_SIZE) {
+                break;
+            }
+            page++;
+        }
+        return fetched[0];
+    }
+    
+    /**
+     * Count the issues matching a query without paging through them
+     */
+    public int count(IssueQuery query) throws IOException {
+        return readTotal(search(query, 1, 1));
+    }
+    
+    /**
+     * Creation date of the first issue in the given sort direction, or null when nothing matches
+     */
+    public OffsetDateTime findCreationDate(IssueQuery query, boolean oldest) throws IOException {
+        JSONArray issues = search(query.withSort("CREATION_DATE", oldest), 1, 1).getJSONArray("issues");
+        if (issues.length() == 0) {
+            return null;
+        }
+        return OffsetDateTime.parse(issues.getJSONObject(0).optString("creationDate"), IssueQuery.SONAR_DATE_TIME);
+    }
+    
+    /**
+     * Fetch one page and fail loudly on a non-200 answer
+     */
+    private JSONObject search(IssueQuery query, int page, int pageSize) throws IOException {
+        JsonResponse response = client.searchIssues(query, page, pageSize);
+        if (response.getStatus() != 200) {
+            throw new IOException("Failed to fetch issues (page " + page + ") for: " + query
+                    + ". Response: " + response.getBody());
+        }
+        return response.getBody().getObject();
+    }
+    
+    /**
+     * Read the total result count of a search response
+     */
+    static int readTotal(JSONObject responseBody) {
+        JSONObject paging = responseBody.optJSONObject("paging");
+        if (paging != null) {
+            return paging.optInt("total", 0);
+        }
+        return responseBody.optInt("total", 0);
+    }
+}
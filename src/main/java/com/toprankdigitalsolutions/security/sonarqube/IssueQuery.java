@@ -0,0 +1,131 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Immutable set of filters for an /api/issues/search query
+ */
+public class IssueQuery {
+    
+    /**
+     * Date-time format used by SonarQube for issue dates and date filters
+     */
+    public static final DateTimeFormatter SONAR_DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssZ");
+    
+    private final String projectKey;
+    private final String severities;
+    private final OffsetDateTime createdAfter;
+    private final OffsetDateTime createdBefore;
+    private final String directory;
+    private final String file;
+    private final String sort;
+    private final boolean ascending;
+    
+    private IssueQuery(String projectKey, String severities, OffsetDateTime createdAfter, OffsetDateTime createdBefore,
+                       String directory, String file, String sort, boolean ascending) {
+        this.projectKey = projectKey;
+        this.severities = severities;
+        this.createdAfter = createdAfter;
+        this.createdBefore = createdBefore;
+        this.directory = directory;
+        this.file = file;
+        this.sort = sort;
+        this.ascending = ascending;
+    }
+    
+    /**
+     * Query every issue of a project
+     */
+    public static IssueQuery forProject(String projectKey) {
+        return new IssueQuery(projectKey, null, null, null, null, null, null, true);
+    }
+    
+    /**
+     * Restrict to a comma-separated list of severities (null for all)
+     */
+    public IssueQuery withSeverities(String severities) {
+        return new IssueQuery(projectKey, severities, createdAfter, createdBefore, directory, file, sort, ascending);
+    }
+    
+    /**
+     * Restrict to issues created in [createdAfter, createdBefore)
+     */
+    public IssueQuery withCreatedRange(OffsetDateTime createdAfter, OffsetDateTime createdBefore) {
+        return new IssueQuery(projectKey, severities, createdAfter, createdBefore, directory, file, sort, ascending);
+    }
+    
+    /**
+     * Restrict to issues of a single directory path
+     */
+    public IssueQuery withDirectory(String directory) {
+        return new IssueQuery(projectKey, severities, createdAfter, createdBefore, directory, file, sort, ascending);
+    }
+    
+    /**
+     * Restrict to issues of a single file path
+     */
+    public IssueQuery withFile(String file) {
+        return new IssueQuery(projectKey, severities, createdAfter, createdBefore, directory, file, sort, ascending);
+    }
+    
+    /**
+     * Sort results on a SonarQube sort field such as CREATION_DATE
+     */
+    public IssueQuery withSort(String sort, boolean ascending) {
+        return new IssueQuery(projectKey, severities, createdAfter, createdBefore, directory, file, sort, ascending);
+    }
+    
+    public String getProjectKey() {
+        return projectKey;
+    }
+    
+    public String getSeverities() {
+        return severities;
+    }
+    
+    public OffsetDateTime getCreatedAfter() {
+        return createdAfter;
+    }
+    
+    public OffsetDateTime getCreatedBefore() {
+        return createdBefore;
+    }
+    
+    public String getDirectory() {
+        return directory;
+    }
+    
+    public String getFile() {
+        return file;
+    }
+    
+    public String getSort() {
+        return sort;
+    }
+    
+    public boolean isAscending() {
+        return ascending;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder description = new StringBuilder(projectKey);
+        if (severities != null) {
+            description.append(" severities=").append(severities);
+        }
+        if (createdAfter != null) {
+            description.append(" createdAfter=").append(SONAR_DATE_TIME.format(createdAfter));
+        }
+        if (createdBefore != null) {
+            description.append(" createdBefore=").append(SONAR_DATE_TIME.format(createdBefore));
+        }
+        if (directory != null) {
+            description.append(" directory=").append(directory);
+        }
+        if (file != null) {
+            description.append(" file=").append(file);
+        }
+        return description.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+/**
+ * Whether an issue was raised on main or test code
+ */
+public enum IssueScope {
+    MAIN, TEST
+}
@@ -0,0 +1,141 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Issues of one export, sorted by key, stored as reports/&lt;projectKey&gt;/snapshots/&lt;time&gt;.issues.snap
+ * so that two exports can be compared in one streaming merge by ReportDiff.
+ * <p>
+ * Layout: "SQSNAP", a version byte, the field count and field names, then one record per issue, each a
+ * 1 byte followed by its fields, and a final 0 byte. A field is a varint of its UTF-8 byte length + 1
+ * (0 for null) and the bytes. Keys are ordered by code point, which is the order of their UTF-8 bytes.
+ */
+public class IssueSnapshot {
+    
+    public static final String DIRECTORY = "snapshots";
+    
+    /**
+     * Snapshots kept per project; older ones are deleted when a new one is saved
+     */
+    public static final int RETAINED_SNAPSHOTS = 10;
+    
+    static final byte[] MAGIC = {'S', 'Q', 'S', 'N', 'A', 'P'};
+    static final int VERSION = 1;
+    
+    private static final String EXTENSION = ".issues.snap";
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss.SSS'Z'").withZone(ZoneOffset.UTC);
+    
+    private IssueSnapshot() {
+    }
+    
+    /**
+     * Write the snapshot of an export and prune the oldest snapshots of the project. A snapshot never
+     * replaces another: when one of the same time exists, the time is moved on by a millisecond.
+     *
+     * @return the snapshot file
+     */
+    public static File save(File projectReportsDir, IssueTable issues, Instant exportedAt) throws IOException {
+        File snapshotsDir = new File(projectReportsDir, DIRECTORY);
+        if (!snapshotsDir.isDirectory() && !snapshotsDir.mkdirs()) {
+            throw new IOException("Could not create " + snapshotsDir);
+        }
+        
+        File partial = Files.createTempFile(snapshotsDir.toPath(), FILE_TIME.format(exportedAt), ".tmp").toFile();
+        File snapshot;
+        try {
+            write(issues, partial);
+            // Exports of one project running in parallel pick their names one at a time
+            synchronized (IssueSnapshot.class) {
+                Instant time = exportedAt;
+                snapshot = new File(snapshotsDir, FILE_TIME.format(time) + EXTENSION);
+                while (snapshot.exists()) {
+                    time = time.plusMillis(1);
+                    snapshot = new File(snapshotsDir, FILE_TIME.format(time) + EXTENSION);
+                }
+                Files.move(partial.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(partial.toPath());
+        }
+        
+        List<File> snapshots = list(projectReportsDir);
+        for (int i = 0; i < snapshots.size() - RETAINED_SNAPSHOTS; i++) {
+            Files.deleteIfExists(snapshots.get(i).toPath());
+        }
+        return snapshot;
+    }
+    
+    /**
+     * Write the issues of a table sorted by key. When a key occurs more than once the last row wins.
+     */
+    public static void write(IssueTable issues, File file) throws IOException {
+        int[] rows = issues.rowsOrderedByKey();
+        PackedStringColumn keys = issues.getKeyColumn();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 64 * 1024))) {
+            out.write(MAGIC);
+            out.write(VERSION);
+            writeVarInt(out, Issue.FIELDS.length);
+            for (String field : Issue.FIELDS) {
+                writeField(out, field);
+            }
+            
+            for (int i = 0; i < rows.length; i++) {
+                // The merge sort is stable, so the last of equal keys is the most recently added row
+                if (i + 1 < rows.length && keys.compare(rows[i], rows[i + 1]) == 0) {
+                    continue;
+                }
+                out.write(1);
+                for (String value : issues.get(rows[i]).toValues()) {
+                    writeField(out, value);
+                }
+            }
+            out.write(0);
+        }
+    }
+    
+    /**
+     * Snapshots of a project, oldest first
+     */
+    public static List<File> list(File projectReportsDir) {
+        File[] files = new File(projectReportsDir, DIRECTORY).listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files);
+        return new ArrayList<>(Arrays.asList(files));
+    }
+    
+    private static void writeField(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length + 1);
+        out.write(bytes);
+    }
+    
+    /**
+     * Unsigned LEB128, as in ColumnarReportSink
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
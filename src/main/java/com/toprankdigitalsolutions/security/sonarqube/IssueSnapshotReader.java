@@ -0,0 +1,91 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Streams the issues of an IssueSnapshot in key order, one record at a time
+ */
+public class IssueSnapshotReader implements Closeable {
+    
+    private final DataInputStream in;
+    private final File file;
+    
+    public IssueSnapshotReader(File file) throws IOException {
+        this.file = file;
+        this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            byte[] magic = new byte[IssueSnapshot.MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, IssueSnapshot.MAGIC) || in.read() != IssueSnapshot.VERSION) {
+                throw new IOException("Not a version " + IssueSnapshot.VERSION + " issue snapshot: " + file);
+            }
+            
+            String[] fields = new String[readVarInt()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = readField();
+            }
+            if (!Arrays.equals(fields, Issue.FIELDS)) {
+                throw new IOException("Issue snapshot " + file + " has unexpected fields " + Arrays.toString(fields));
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Values of the next issue in the order of Issue.FIELDS, or null after the last one
+     */
+    public String[] readRow() throws IOException {
+        int marker = in.read();
+        if (marker == 0) {
+            return null;
+        }
+        if (marker != 1) {
+            throw new IOException("Corrupt or truncated issue snapshot: " + file);
+        }
+        String[] values = new String[Issue.FIELDS.length];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readField();
+        }
+        return values;
+    }
+    
+    private String readField() throws IOException {
+        int length = readVarInt();
+        if (length == 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length - 1];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+    
+    private int readVarInt() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.read();
+            if (b == -1) {
+                throw new EOFException("Truncated issue snapshot: " + file);
+            }
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint in issue snapshot: " + file);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,224 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.IntStream;
+
+/**
+ * Issue counts and effort/debt totals by severity, type, rule and component, aggregated while an export
+ * streams so that summary.csv and summary.json need no second pass over the reports.
+ * Every value is mapped to a dense code once and counted in primitive arrays.
+ */
+public class IssueSummary implements RecordSink<Issue> {
+    
+    public static final String CSV_FILE = "summary.csv";
+    public static final String JSON_FILE = "summary.json";
+    
+    /**
+     * SonarQube counts a day of remediation effort as 8 hours
+     */
+    static final int MINUTES_PER_DAY = 8 * 60;
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final String projectKey;
+    private final Counters bySeverity = new Counters();
+    private final Counters byType = new Counters();
+    private final Counters byRule = new Counters();
+    private final Counters byComponent = new Counters();
+    private final Counters hotspotsByProbability = new Counters();
+    private long issues;
+    private long effortMinutes;
+    private long debtMinutes;
+    private long hotspots;
+    
+    public IssueSummary(String projectKey) {
+        this.projectKey = projectKey;
+    }
+    
+    /**
+     * Count an exported issue; severity exports running in parallel share one summary
+     */
+    @Override
+    public synchronized void accept(Issue issue) {
+        long effort = parseMinutes(issue.getEffort());
+        long debt = parseMinutes(issue.getDebt());
+        issues++;
+        effortMinutes += effort;
+        debtMinutes += debt;
+        bySeverity.add(issue.getSeverity(), effort, debt);
+        byType.add(issue.getType(), effort, debt);
+        byRule.add(issue.getRule(), effort, debt);
+        byComponent.add(issue.getComponent(), effort, debt);
+    }
+    
+    public synchronized void acceptHotspot(Hotspot hotspot) {
+        hotspots++;
+        hotspotsByProbability.add(hotspot.getVulnerabilityProbability(), 0, 0);
+    }
+    
+    public synchronized long getIssues() {
+        return issues;
+    }
+    
+    public synchronized long getDebtMinutes() {
+        return debtMinutes;
+    }
+    
+    /**
+     * Write summary.csv and summary.json into the project's reports directory
+     */
+    public synchronized void write(File projectReportsDir) throws IOException {
+        writeCsv(new File(projectReportsDir, CSV_FILE));
+        writeJson(new File(projectReportsDir, JSON_FILE));
+    }
+    
+    /**
+     * One row per counted value: dimension,value,count,effort_minutes,debt_minutes
+     */
+    private void writeCsv(File file) throws IOException {
+        ReportFileWriter writer = new ReportFileWriter(file.toPath());
+        try {
+            CsvEncoder csv = new CsvEncoder(writer);
+            csv.writeRow("dimension", "value", "count", "effort_minutes", "debt_minutes");
+            csv.writeRow("total", "issues", Long.toString(issues), Long.toString(effortMinutes), Long.toString(debtMinutes));
+            csv.writeRow("total", "hotspots", Long.toString(hotspots), "0", "0");
+            writeCsvRows(csv, "severity", bySeverity);
+            writeCsvRows(csv, "type", byType);
+            writeCsvRows(csv, "rule", byRule);
+            writeCsvRows(csv, "component", byComponent);
+            writeCsvRows(csv, "hotspot_probability", hotspotsByProbability);
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+    }
+    
+    private void writeCsvRows(CsvEncoder csv, String dimension, Counters counters) throws IOException {
+        for (int code : counters.codesByCount()) {
+            csv.writeRow(dimension, counters.value(code), Integer.toString(counters.count[code]),
+                    Long.toString(counters.effort[code]), Long.toString(counters.debt[code]));
+        }
+    }
+    
+    private void writeJson(File file) throws IOException {
+        ReportFileWriter writer = new ReportFileWriter(file.toPath());
+        // The writer is closed, and the file published, only once the generator has written everything
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(writer).disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            json.useDefaultPrettyPrinter();
+            json.writeStartObject();
+            json.writeStringField("project", projectKey);
+            json.writeNumberField("issues", issues);
+            json.writeNumberField("effortMinutes", effortMinutes);
+            json.writeNumberField("debtMinutes", debtMinutes);
+            json.writeNumberField("hotspots", hotspots);
+            writeJsonCounters(json, "bySeverity", bySeverity);
+            writeJsonCounters(json, "byType", byType);
+            writeJsonCounters(json, "byRule", byRule);
+            writeJsonCounters(json, "byComponent", byComponent);
+            writeJsonCounters(json, "hotspotsByProbability", hotspotsByProbability);
+            json.writeEndObject();
+        } catch (IOException | RuntimeException e) {
+            writer.abort();
+            throw e;
+        }
+        writer.close();
+    }
+    
+    private void writeJsonCounters(JsonGenerator json, String name, Counters counters) throws IOException {
+        json.writeArrayFieldStart(name);
+        for (int code : counters.codesByCount()) {
+            json.writeStartObject();
+            json.writeStringField("value", counters.value(code));
+            json.writeNumberField("count", counters.count[code]);
+            json.writeNumberField("effortMinutes", counters.effort[code]);
+            json.writeNumberField("debtMinutes", counters.debt[code]);
+            json.writeEndObject();
+        }
+        json.writeEndArray();
+    }
+    
+    /**
+     * Minutes of a SonarQube duration such as "5min", "2h", "1h 30min" or "3d"; 0 when missing or malformed
+     */
+    static long parseMinutes(String duration) {
+        if (duration == null) {
+            return 0;
+        }
+        long minutes = 0;
+        int i = 0;
+        int length = duration.length();
+        while (i < length) {
+            if (duration.charAt(i) == ' ') {
+                i++;
+                continue;
+            }
+            long amount = 0;
+            int digits = i;
+            while (i < length && Character.isDigit(duration.charAt(i))) {
+                amount = amount * 10 + (duration.charAt(i++) - '0');
+            }
+            if (i == digits || i == length) {
+                return 0;
+            }
+            if (duration.startsWith("min", i)) {
+                minutes += amount;
+                i += 3;
+            } else if (duration.charAt(i) == 'h') {
+                minutes += amount * 60;
+                i++;
+            } else if (duration.charAt(i) == 'd') {
+                minutes += amount * MINUTES_PER_DAY;
+                i++;
+            } else {
+                return 0;
+            }
+        }
+        return minutes;
+    }
+    
+    /**
+     * Count and effort/debt totals per value, indexed by the value's dictionary code
+     */
+    private static class Counters {
+        private final StringDictionary values = new StringDictionary();
+        private int[] count = new int[16];
+        private long[] effort = new long[16];
+        private long[] debt = new long[16];
+        
+        void add(String value, long effortMinutes, long debtMinutes) {
+            int code = values.encode(value);
+            if (code == count.length) {
+                count = Arrays.copyOf(count, code * 2);
+                effort = Arrays.copyOf(effort, code * 2);
+                debt = Arrays.copyOf(debt, code * 2);
+            }
+            count[code]++;
+            effort[code] += effortMinutes;
+            debt[code] += debtMinutes;
+        }
+        
+        /**
+         * Codes that were counted, most frequent first; issues without the value are listed as ""
+         */
+        int[] codesByCount() {
+            return IntStream.rangeClosed(StringDictionary.NULL_CODE, values.size())
+                    .filter(code -> count[code] > 0)
+                    .boxed()
+                    .sorted(Comparator.comparingInt((Integer code) -> -count[code]).thenComparing(this::value))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+        
+        String value(int code) {
+            String value = values.decode(code);
+            return value == null ? "" : value;
+        }
+    }
+}
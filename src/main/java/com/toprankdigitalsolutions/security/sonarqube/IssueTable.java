@@ -0,0 +1,226 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+
+/**
+ * Compact, column-oriented holder for every issue of an export, for whole-project work such as sorting,
+ * grouping and diffing. Repeated text (rule, component, status, author, dates, ...) is dictionary
+ * encoded per table, severity, type and scope are enums, and lines and offsets are primitive ints,
+ * which brings a million issues down from several GB of Issue objects to roughly 150 MB.
+ * <p>
+ * Rows are appended as the issues stream in and read back as Issue views with get(row). A table is
+ * not thread-safe; fill it from one thread or wrap the sink.
+ */
+public class IssueTable implements RecordSink<Issue> {
+    
+    private static final int DEFAULT_CAPACITY = 1024;
+    
+    private final PackedStringColumn key;
+    private final DictionaryColumn rule;
+    private final EnumColumn<Severity> severity;
+    private final DictionaryColumn component;
+    private final DictionaryColumn project;
+    private final IntColumn line;
+    private final PackedStringColumn hash;
+    private final IntColumn textRangeStartLine;
+    private final IntColumn textRangeEndLine;
+    private final IntColumn textRangeStartOffset;
+    private final IntColumn textRangeEndOffset;
+    private final DictionaryColumn status;
+    private final DictionaryColumn message;
+    private final DictionaryColumn effort;
+    private final DictionaryColumn debt;
+    private final DictionaryColumn author;
+    private final DictionaryColumn creationDate;
+    private final DictionaryColumn updateDate;
+    private final EnumColumn<IssueType> type;
+    private final EnumColumn<IssueScope> scope;
+    private int size;
+    
+    public IssueTable() {
+        this(DEFAULT_CAPACITY);
+    }
+    
+    /**
+     * @param initialCapacity expected number of issues, such as the total of the first search page
+     */
+    public IssueTable(int initialCapacity) {
+        key = new PackedStringColumn(initialCapacity, 20);
+        rule = new DictionaryColumn(initialCapacity);
+        severity = new EnumColumn<>(Severity.class, initialCapacity);
+        component = new DictionaryColumn(initialCapacity);
+        project = new DictionaryColumn(initialCapacity);
+        line = new IntColumn(initialCapacity);
+        hash = new PackedStringColumn(initialCapacity, 32);
+        textRangeStartLine = new IntColumn(initialCapacity);
+        textRangeEndLine = new IntColumn(initialCapacity);
+        textRangeStartOffset = new IntColumn(initialCapacity);
+        textRangeEndOffset = new IntColumn(initialCapacity);
+        status = new DictionaryColumn(initialCapacity);
+        // Messages are generated per rule and repeat across files far more often than not
+        message = new DictionaryColumn(initialCapacity);
+        effort = new DictionaryColumn(initialCapacity);
+        debt = new DictionaryColumn(initialCapacity);
+        author = new DictionaryColumn(initialCapacity);
+        creationDate = new DictionaryColumn(initialCapacity);
+        updateDate = new DictionaryColumn(initialCapacity);
+        type = new EnumColumn<>(IssueType.class, initialCapacity);
+        scope = new EnumColumn<>(IssueScope.class, initialCapacity);
+    }
+    
+    @Override
+    public void accept(Issue issue) {
+        add(issue);
+    }
+    
+    /**
+     * Append an issue as a new row
+     */
+    public int add(Issue issue) {
+        key.add(issue.getKey());
+        rule.add(issue.getRule());
+        severity.add(issue.getSeverity());
+        component.add(issue.getComponent());
+        project.add(issue.getProject());
+        line.add(issue.getLine());
+        hash.add(issue.getHash());
+        textRangeStartLine.add(issue.getTextRange_startLine());
+        textRangeEndLine.add(issue.getTextRange_endLine());
+        textRangeStartOffset.add(issue.getTextRange_startOffset());
+        textRangeEndOffset.add(issue.getTextRange_endOffset());
+        status.add(issue.getStatus());
+        message.add(issue.getMessage());
+        effort.add(issue.getEffort());
+        debt.add(issue.getDebt());
+        author.add(issue.getAuthor());
+        creationDate.add(issue.getCreationDate());
+        updateDate.add(issue.getUpdateDate());
+        type.add(issue.getType());
+        scope.add(issue.getScope());
+        return size++;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * Materialize one row as an Issue
+     */
+    public Issue get(int row) {
+        checkRow(row);
+        Issue issue = new Issue();
+        issue.setKey(key.get(row));
+        issue.setRule(rule.get(row));
+        issue.setSeverity(severity.get(row));
+        issue.setComponent(component.get(row));
+        issue.setProject(project.get(row));
+        issue.setLine(line.get(row));
+        issue.setHash(hash.get(row));
+        issue.setTextRange_startLine(textRangeStartLine.get(row));
+        issue.setTextRange_endLine(textRangeEndLine.get(row));
+        issue.setTextRange_startOffset(textRangeStartOffset.get(row));
+        issue.setTextRange_endOffset(textRangeEndOffset.get(row));
+        issue.setStatus(status.get(row));
+        issue.setMessage(message.get(row));
+        issue.setEffort(effort.get(row));
+        issue.setDebt(debt.get(row));
+        issue.setAuthor(author.get(row));
+        issue.setCreationDate(creationDate.get(row));
+        issue.setUpdateDate(updateDate.get(row));
+        issue.setType(type.get(row));
+        issue.setScope(scope.get(row));
+        return issue;
+    }
+    
+    /**
+     * Hand every row, in table order, to a sink as an Issue view
+     */
+    public void forEach(RecordSink<Issue> sink) throws IOException {
+        for (int row = 0; row < size; row++) {
+            sink.accept(get(row));
+        }
+    }
+    
+    /**
+     * Row numbers ordered by issue key
+     */
+    public int[] rowsOrderedByKey() {
+        return key.sortedRows();
+    }
+    
+    /**
+     * Number of issues per value of one of this table's dictionary columns, indexed by dictionary code
+     * (index 0 counts nulls)
+     */
+    public int[] countBy(DictionaryColumn column) {
+        int[] counts = new int[column.getDictionary().size() + 1];
+        for (int row = 0; row < size; row++) {
+            counts[column.getCode(row)]++;
+        }
+        return counts;
+    }
+    
+    public String getKey(int row) {
+        return key.get(row);
+    }
+    
+    public Severity getSeverity(int row) {
+        return severity.getEnum(row);
+    }
+    
+    public IssueType getType(int row) {
+        return type.getEnum(row);
+    }
+    
+    public IssueScope getScope(int row) {
+        return scope.getEnum(row);
+    }
+    
+    public int getLine(int row) {
+        return line.getInt(row);
+    }
+    
+    public PackedStringColumn getKeyColumn() {
+        return key;
+    }
+    
+    public PackedStringColumn getHashColumn() {
+        return hash;
+    }
+    
+    public DictionaryColumn getRuleColumn() {
+        return rule;
+    }
+    
+    public DictionaryColumn getComponentColumn() {
+        return component;
+    }
+    
+    public DictionaryColumn getStatusColumn() {
+        return status;
+    }
+    
+    public DictionaryColumn getAuthorColumn() {
+        return author;
+    }
+    
+    /**
+     * Heap held by the column arrays, excluding the dictionary entries
+     */
+    public long estimatedBytes() {
+        return key.estimatedBytes() + rule.estimatedBytes() + severity.estimatedBytes() + component.estimatedBytes()
+                + project.estimatedBytes() + line.estimatedBytes() + hash.estimatedBytes()
+                + textRangeStartLine.estimatedBytes() + textRangeEndLine.estimatedBytes()
+                + textRangeStartOffset.estimatedBytes() + textRangeEndOffset.estimatedBytes()
+                + status.estimatedBytes() + message.estimatedBytes() + effort.estimatedBytes() + debt.estimatedBytes()
+                + author.estimatedBytes() + creationDate.estimatedBytes() + updateDate.estimatedBytes()
+                + type.estimatedBytes() + scope.estimatedBytes();
+    }
+    
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+/**
+ * Issue types reported by /api/issues/search
+ */
+public enum IssueType {
+    CODE_SMELL, BUG, VULNERABILITY, SECURITY_HOTSPOT
+}
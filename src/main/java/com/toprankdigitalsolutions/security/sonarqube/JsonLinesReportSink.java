@@ -0,0 +1,52 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.function.Function;
+
+/**
+ * Writes one JSON object per line, with the report columns as fields. Null values are left out
+ */
+public class JsonLinesReportSink<T> implements ReportSink<T> {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private final JsonGenerator json;
+    private final String[] fields;
+    private final Function<T, String[]> values;
+    private boolean empty = true;
+    
+    public JsonLinesReportSink(OutputStream out, String[] fields, Function<T, String[]> values) throws IOException {
+        this.json = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+        // Root values are separated by the newline instead of the default space
+        this.json.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+        this.fields = fields;
+        this.values = values;
+    }
+    
+    @Override
+    public void accept(T record) throws IOException {
+        String[] row = values.apply(record);
+        json.writeStartObject();
+        for (int i = 0; i < fields.length; i++) {
+            if (row[i] != null) {
+                json.writeStringField(fields[i], row[i]);
+            }
+        }
+        json.writeEndObject();
+        empty = false;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (!empty) {
+            json.writeRaw('\n');
+        }
+        json.close();
+    }
+}
@@ -0,0 +1,27 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.function.Supplier;
+
+/**
+ * Creates the SonarQube client on first use, so that usage errors and purely local work never pay
+ * for building the HTTP client or probing the server
+ */
+public class LazyClient implements Supplier<SonarQubeClient>, AutoCloseable {
+    
+    private SonarQubeClient client;
+    
+    @Override
+    public synchronized SonarQubeClient get() {
+        if (client == null) {
+            client = new SonarQubeClient();
+        }
+        return client;
+    }
+    
+    @Override
+    public synchronized void close() {
+        if (client != null) {
+            client.close();
+        }
+    }
+}
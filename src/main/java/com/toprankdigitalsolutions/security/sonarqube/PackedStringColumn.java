@@ -0,0 +1,111 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Column of mostly unique strings, such as issue keys and hashes, packed back to back as UTF-8 in one
+ * byte array. A 20-character key then costs 24 bytes instead of a String object of about 64.
+ */
+public class PackedStringColumn {
+    
+    private byte[] bytes;
+    
+    /**
+     * Start of row i is offsets[i], its end is offsets[i + 1]; a null row is marked by a negative end
+     */
+    private int[] offsets;
+    private int size;
+    private int used;
+    
+    public PackedStringColumn(int initialCapacity, int averageLength) {
+        this.bytes = new byte[Math.max(16, initialCapacity * averageLength)];
+        this.offsets = new int[Math.max(1, initialCapacity) + 1];
+    }
+    
+    public void add(String value) {
+        if (size + 1 == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        if (value == null) {
+            offsets[size + 1] = -used - 1;
+            size++;
+            return;
+        }
+        
+        byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+        if (used + encoded.length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, used + encoded.length));
+        }
+        System.arraycopy(encoded, 0, bytes, used, encoded.length);
+        used += encoded.length;
+        offsets[++size] = used;
+    }
+    
+    public String get(int row) {
+        int end = offsets[row + 1];
+        if (end < 0) {
+            return null;
+        }
+        int start = start(row);
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * Order two rows by their UTF-8 bytes without decoding them; nulls sort first. For keys, which are
+     * ASCII, this is the same order as String.compareTo.
+     */
+    public int compare(int rowA, int rowB) {
+        int endA = offsets[rowA + 1];
+        int endB = offsets[rowB + 1];
+        if (endA < 0 || endB < 0) {
+            return Boolean.compare(endA >= 0, endB >= 0);
+        }
+        int startA = start(rowA);
+        int startB = start(rowB);
+        return Arrays.compareUnsigned(bytes, startA, endA, bytes, startB, endB);
+    }
+    
+    /**
+     * Row numbers ordered by compare(), sorted with a stable merge sort on primitive arrays
+     */
+    public int[] sortedRows() {
+        int[] rows = new int[size];
+        for (int row = 0; row < size; row++) {
+            rows[row] = row;
+        }
+        int[] buffer = new int[size];
+        for (int width = 1; width < size; width *= 2) {
+            for (int low = 0; low < size; low += 2 * width) {
+                int middle = Math.min(low + width, size);
+                int high = Math.min(low + 2 * width, size);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (left < middle && (right >= high || compare(rows[left], rows[right]) <= 0)) {
+                        buffer[i] = rows[left++];
+                    } else {
+                        buffer[i] = rows[right++];
+                    }
+                }
+            }
+            int[] swap = rows;
+            rows = buffer;
+            buffer = swap;
+        }
+        return rows;
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public long estimatedBytes() {
+        return bytes.length + 4L * offsets.length;
+    }
+    
+    private int start(int row) {
+        int previousEnd = offsets[row];
+        return previousEnd < 0 ? -previousEnd - 1 : previousEnd;
+    }
+}
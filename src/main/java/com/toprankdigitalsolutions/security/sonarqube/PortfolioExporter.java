@@ -0,0 +1,111 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Exports the reports of every project of the SonarQube instance on a bounded worker pool
+ */
+public class PortfolioExporter {
+    
+    private final SonarQubeClient client;
+    private final ExportOptions options;
+    
+    public PortfolioExporter(SonarQubeClient client, ExportOptions options) {
+        this.client = client;
+        this.options = options;
+    }
+    
+    /**
+     * Export all projects, continuing past projects that fail
+     *
+     * @return true when every project was exported without errors
+     */
+    public boolean exportAllProjects(String outputPath, int workers) {
+        if (!client.isAvailable()) {
+            System.err.println("❌ SonarQube server not available");
+            return false;
+        }
+        
+        List<Project> projects;
+        try {
+            projects = new ProjectManager(client).fetchAllProjects();
+        } catch (Exception e) {
+            System.err.println("❌ Error fetching projects: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        
+        if (projects.isEmpty()) {
+            System.out.println("📝 No projects found in SonarQube");
+            return true;
+        }
+        
+        System.out.println("📦 Exporting reports for " + projects.size() + " project(s) with " + workers + " worker(s)");
+        long startTime = System.nanoTime();
+        AtomicInteger finished = new AtomicInteger();
+        List<String> failedProjects = new ArrayList<>();
+        
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Project project : projects) {
+                futures.add(pool.submit(() -> {
+                    boolean exported = exportProject(project, outputPath, projects.size(), finished);
+                    if (!exported) {
+                        synchronized (failedProjects) {
+                            failedProjects.add(project.getKey());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Portfolio export interrupted: " + e.getMessage());
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime);
+        System.out.println("=" + "=".repeat(60));
+        System.out.println("📦 Portfolio export finished in " + elapsedSeconds + "s: "
+                + (projects.size() - failedProjects.size()) + " succeeded, " + failedProjects.size() + " failed");
+        if (!failedProjects.isEmpty()) {
+            System.err.println("❌ Failed projects: " + String.join(", ", failedProjects));
+            return false;
+        }
+        return true;
+    }
+    
+    /**
+     * Export one project and report its progress; never throws so that the remaining projects keep going
+     */
+    private boolean exportProject(Project project, String outputPath, int projectCount, AtomicInteger finished) {
+        long startTime = System.nanoTime();
+        boolean exported;
+        try {
+            exported = new ReportExporter(client, options).exportAllReports(project.getKey(), outputPath);
+        } catch (Exception e) {
+            System.err.println("❌ Error exporting project " + project.getKey() + ": " + e.getMessage());
+            exported = false;
+        }
+        
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+        String progress = "[" + finished.incrementAndGet() + "/" + projectCount + "] ";
+        if (exported) {
+            System.out.println(progress + "✅ " + project.getKey() + " exported in " + elapsedMillis + " ms");
+        } else {
+            System.err.println(progress + "❌ " + project.getKey() + " failed after " + elapsedMillis + " ms");
+        }
+        return exported;
+    }
+}
@@ -0,0 +1,9 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+@Data
+public class Project {
+    private String key;
+    private String name;
+}
@@ -7,6 +7,8 @@ import kong.unirest.core.json.JSONObject;
 
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Manages SonarQube projects and authentication tokens
@@ -115,48 +117,101 @@ public class ProjectManager {
     /**
      * Save project configuration to file
      */
-    public void saveConfiguration(String projectKey, String token, String filePath) {
+    public boolean saveConfiguration(String projectKey, String token, String filePath) {
         try (FileWriter variables = new FileWriter(filePath + "/sq_variables.config")) {
             variables.write("SQ_PROJECT_KEY=" + projectKey + System.lineSeparator());
             variables.write("SQ_ACCESS_TOKEN=" + token + System.lineSeparator());
             System.out.println("✅ Configuration saved to: " + filePath + "/sq_variables.config");
+            return true;
         } catch (IOException e) {
             System.err.println("❌ Failed to save configuration: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
     
+    /**
+     * Create the project if needed, generate its token and save both to sq_variables.config in the project path
+     */
+    public boolean orchestrate(String projectPath, String projectName, String projectKey) {
+        if (!client.isAvailable()) {
+            System.err.println("❌ SonarQube server not available");
+            return false;
+        }
+        
+        // Create project if needed
+        if (!createProjectIfNotExists(projectName, projectKey)) {
+            return false;
+        }
+        
+        // Generate token
+        String token = generateToken(projectName);
+        if (token == null) {
+            return false;
+        }
+        
+        // Save configuration
+        if (!saveConfiguration(projectKey, token, projectPath)) {
+            return false;
+        }
+        
+        System.out.println("✅ Project orchestration completed!");
+        return true;
+    }
+    
+    /**
+     * Fetch every project of the SonarQube instance, page by page
+     */
+    public List<Project> fetchAllProjects() throws IOException {
+        List<Project> allProjects = new ArrayList<>();
+        int total;
+        int page = 1;
+        do {
+            JsonResponse response = client.getProjects(page, SonarQubeClient.MAX_PAGE_SIZE);
+            if (response.getStatus() != 200) {
+                throw new IOException("Failed to fetch projects (page " + page + "). Response: " + response.getBody());
+            }
+            
+            JSONObject responseBody = response.getBody().getObject();
+            JSONArray projects = responseBody.getJSONArray("components");
+            total = IssueFetcher.readTotal(responseBody);
+            if (projects.length() == 0) {
+                break;
+            }
+            
+            for (int i = 0; i < projects.length(); i++) {
+                JSONObject projectObject = projects.getJSONObject(i);
+                Project project = new Project();
+                project.setKey(projectObject.optString("key", "N/A"));
+                project.setName(projectObject.optString("name", "N/A"));
+                allProjects.add(project);
+            }
+            page++;
+        } while (allProjects.size() < total);
+        
+        return allProjects;
+    }
+    
     /**
      * Display all projects in a formatted table
      */
     public void listAllProjects() {
         try {
-            JsonResponse response = client.getAllProjects();
-            int responseStatus = response.getStatus();
-            System.out.println("projectsSearchResponseStatus = " + responseStatus);
-
-            if (responseStatus != 200) {
-                System.err.println("❌ Failed to fetch projects. Response: " + response.getBody());
-                return;
-            }
-
-            JsonNode responseBody = response.getBody();
-            JSONArray projects = responseBody.getObject().getJSONArray("components");
+            List<Project> projects = fetchAllProjects();
             
-            if (projects.length() == 0) {
+            if (projects.isEmpty()) {
                 System.out.println("📝 No projects found in SonarQube");
                 return;
             }
             
-            System.out.println("\n📋 Found " + projects.length() + " project(s):");
+            System.out.println("\n📋 Found " + projects.size() + " project(s):");
             System.out.println("=" + "=".repeat(60));
             System.out.printf("%-30s | %-25s%n", "PROJECT NAME", "PROJECT KEY");
             System.out.println("-" + "-".repeat(60));
             
-            for (int i = 0; i < projects.length(); i++) {
-                JSONObject project = projects.getJSONObject(i);
-                String name = project.optString("name", "N/A");
-                String key = project.optString("key", "N/A");
+            for (Project project : projects) {
+                String name = project.getName();
+                String key = project.getKey();
                 System.out.printf("%-30s | %-25s%n", 
                     name.length() > 30 ? name.substring(0, 27) + "..." : name, 
                     key.length() > 25 ? key.substring(0, 22) + "..." : key);
@@ -1,54 +1,96 @@
 package com.toprankdigitalsolutions.security.sonarqube;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Main application class that orchestrates SonarQube project scanning workflow
  */
 public class ProjectScanner {
-
+    
     public static void main(String[] args) {
         if (args.length == 0) {
             printUsage();
             return;
         }
-
+        
         String mode = args[0];
         
-        // Initialize SonarQube client
-        SonarQubeClient client = new SonarQubeClient();
+        // Process-wide: must happen before the JDK HTTP client classes are first used
+        HttpClientSettings.configureConnectionPool();
         
+        // The SonarQube client is only created once a mode needs the server; its connection pool is
+        // then shared by every operation of this run
+        try (LazyClient client = new LazyClient()) {
+            runMode(mode, args, client);
+        } catch (InvalidOptionException e) {
+            System.err.println("❌ " + e.getMessage());
+        }
+    }
+    
+    private static void runMode(String mode, String[] args, LazyClient client) {
         switch (mode) {
             case ProjectScannerConstants.LIST_PROJECTS_MODE:
                 handleListProjects(client);
                 break;
-                
+            
             case ProjectScannerConstants.ORCHESTRATE_SCANNING_MODE:
                 handleOrchestrateScanning(args, client);
                 break;
-                
+            
             case ProjectScannerConstants.RUN_SCAN_MODE:
                 handleRunScan(args, client);
                 break;
-                
+            
+            case ProjectScannerConstants.RUN_SCANS_MODE:
+                handleRunScans(args, client);
+                break;
+            
             case ProjectScannerConstants.PARSE_REPORT_MODE:
                 handleParseReport(args, client);
                 break;
-                
+            
+            case ProjectScannerConstants.SCAN_AND_EXPORT_MODE:
+                handleScanAndExport(args, client);
+                break;
+            
+            case ProjectScannerConstants.PARSE_ALL_REPORTS_MODE:
+                handleParseAllReports(args, client);
+                break;
+            
+            case ProjectScannerConstants.DAEMON_MODE:
+                handleDaemon(args, client);
+                break;
+            
+            case ProjectScannerConstants.DIFF_REPORTS_MODE:
+                handleDiffReports(args);
+                break;
+            
+            case ProjectScannerConstants.COUNT_ISSUES_MODE:
+                handleCountIssues(args, client);
+                break;
+            
             default:
                 System.err.println("❌ Unknown mode: " + mode);
                 printUsage();
         }
     }
-
-    private static void handleListProjects(SonarQubeClient client) {
-        if (!client.isAvailable()) {
+    
+    private static void handleListProjects(LazyClient client) {
+        if (!client.get().isAvailable()) {
             return;
         }
-
-        ProjectManager projectManager = new ProjectManager(client);
+        
+        ProjectManager projectManager = new ProjectManager(client.get());
         projectManager.listAllProjects();
     }
     
-    private static void handleOrchestrateScanning(String[] args, SonarQubeClient client) {
+    private static void handleOrchestrateScanning(String[] args, LazyClient client) {
         if (args.length < 4) {
             System.err.println("❌ Usage: java -jar fat.jar orchestrateScanning <path> <project_name> <project_key>");
             return;
@@ -58,52 +100,322 @@ public class ProjectScanner {
         String projectName = args[2];
         String projectKey = args[3];
         
-        if (!client.isAvailable()) {
-            System.err.println("❌ SonarQube server not available");
+        ProjectManager projectManager = new ProjectManager(client.get());
+        projectManager.orchestrate(initialPath, projectName, projectKey);
+    }
+    
+    private static void handleRunScan(String[] args, LazyClient client) {
+        if (args.length < 2) {
+            System.err.println("❌ Usage: java -jar fat.jar runScan <project_path> [scan options]");
             return;
         }
         
-        ProjectManager projectManager = new ProjectManager(client);
+        String projectPath = args[1];
+        ScanOptions options = parseScanOptions(args);
+        if (options == null) {
+            return;
+        }
+        ScannerExecutor executor = new ScannerExecutor(client.get());
+        executor.runScan(projectPath, options);
+    }
+    
+    private static void handleRunScans(String[] args, LazyClient client) {
+        List<String> paths = positionalArguments(args, "--max-scans", "--scan-timeout", "--log-dir", "--scanner-memory-mb",
+                "--scanner-cache", "--scanner-cache-dir", "--scanner-cache-max-mb");
+        if (paths.isEmpty()) {
+            System.err.println("❌ Usage: java -jar fat.jar runScans <manifest_file | project_path...> [--max-scans <n>] [--scan-timeout <minutes>] [--scanner-memory-mb <mb>] [scan options]");
+            return;
+        }
         
-        // Create project if needed
-        if (!projectManager.createProjectIfNotExists(projectName, projectKey)) {
+        ScanOptions options = parseScanOptions(args);
+        if (options == null) {
             return;
         }
         
-        // Generate token
-        String token = projectManager.generateToken(projectName);
-        if (token == null) {
+        List<ScanTarget> targets = new ArrayList<>();
+        try {
+            for (String path : paths) {
+                if (new File(path).isFile()) {
+                    targets.addAll(ScanScheduler.readManifest(Paths.get(path)));
+                } else {
+                    targets.add(new ScanTarget(path, ScannerExecutor.DEFAULT_WORKSPACE_DIR));
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error reading scan manifest: " + e.getMessage());
             return;
         }
         
-        // Save configuration
-        projectManager.saveConfiguration(projectKey, token, initialPath);
+        if (!client.get().isAvailable()) {
+            System.err.println("❌ SonarQube server not available");
+            return;
+        }
         
-        System.out.println("✅ Project orchestration completed!");
+        new ScanScheduler(new ScannerExecutor(client.get()), options).runScans(targets);
     }
     
-    private static void handleRunScan(String[] args, SonarQubeClient client) {
+    private static void handleParseReport(String[] args, LazyClient client) {
         if (args.length < 2) {
-            System.err.println("❌ Usage: java -jar fat.jar runScan <project_path>");
+            System.err.println("❌ Usage: java -jar fat.jar parseReport <project_key> [--sharded] [--shard-workers <n>] [--concurrency <n>] [--single-query] [--incremental] [--format csv|csv.gz|csv.zst|jsonl|columnar] [--no-snapshot]");
             return;
         }
         
-        String projectPath = args[1];
-        ScannerExecutor executor = new ScannerExecutor(client);
-        executor.runScan(projectPath);
+        String projectKey = args[1];
+        String currentDir = System.getProperty("user.dir");
+        
+        ExportOptions exportOptions = parseExportOptions(args);
+        if (exportOptions == null) {
+            return;
+        }
+        
+        ReportExporter exporter = new ReportExporter(client.get(), exportOptions);
+        exporter.exportAllReports(projectKey, currentDir);
     }
-
-    private static void handleParseReport(String[] args, SonarQubeClient client) {
+    
+    private static void handleScanAndExport(String[] args, LazyClient client) {
         if (args.length < 2) {
-            System.err.println("❌ Usage: java -jar fat.jar parseReport <project_key>");
+            System.err.println("❌ Usage: java -jar fat.jar scanAndExport <project_path> [--task-timeout <minutes>] [scan options] [parseReport options]");
             return;
         }
         
-        String projectKey = args[1];
+        ScanOptions scanOptions = parseScanOptions(args);
+        ExportOptions exportOptions = parseExportOptions(args);
+        if (scanOptions == null || exportOptions == null) {
+            return;
+        }
+        
+        String projectPath = args[1];
         String currentDir = System.getProperty("user.dir");
+        long taskTimeoutMillis = TimeUnit.MINUTES.toMillis(longOption(args, "--task-timeout", 30, 1));
         
-        ReportExporter exporter = new ReportExporter(client);
-        exporter.exportAllReports(projectKey, currentDir);
+        ScanPipeline pipeline = new ScanPipeline(client.get(), scanOptions, exportOptions, taskTimeoutMillis);
+        pipeline.scanAndExport(projectPath, currentDir);
+    }
+    
+    private static void handleParseAllReports(String[] args, LazyClient client) {
+        int workers = intOption(args, "--workers", 4, 1);
+        String currentDir = System.getProperty("user.dir");
+        ExportOptions exportOptions = parseExportOptions(args);
+        if (exportOptions == null) {
+            return;
+        }
+        
+        PortfolioExporter exporter = new PortfolioExporter(client.get(), exportOptions);
+        exporter.exportAllProjects(currentDir, workers);
+    }
+    
+    private static void handleDaemon(String[] args, LazyClient client) {
+        int port = intOption(args, "--port", 9100, 1, 65535);
+        int workers = intOption(args, "--workers", 2, 1);
+        ScanOptions scanOptions = parseScanOptions(args);
+        if (scanOptions == null) {
+            return;
+        }
+        
+        try {
+            new DaemonServer(client.get(), scanOptions, port, workers).run();
+        } catch (IOException e) {
+            System.err.println("❌ Could not start daemon on port " + port + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Print issue counts from facets, for the given projects or with --all for every project
+     */
+    private static void handleCountIssues(String[] args, LazyClient client) {
+        List<String> projectKeys = positionalArguments(args, "--workers");
+        boolean allProjects = hasOption(args, "--all");
+        if (projectKeys.isEmpty() == !allProjects) {
+            System.err.println("❌ Usage: java -jar fat.jar countIssues <project_key...> | --all [--workers <n>] [--json]");
+            return;
+        }
+        int workers = intOption(args, "--workers", 8, 1);
+        
+        if (!client.get().isAvailable()) {
+            System.err.println("❌ SonarQube server not available");
+            return;
+        }
+        
+        IssueCounter counter = new IssueCounter(client.get());
+        long startTime = System.nanoTime();
+        try {
+            List<IssueCounts> results = allProjects ? counter.countAllProjects(workers) : counter.countAll(projectKeys, workers);
+            if (hasOption(args, "--json")) {
+                IssueCounter.writeJson(results, System.out);
+                System.out.flush();
+                return;
+            }
+            for (IssueCounts counts : results) {
+                IssueCounter.print(counts);
+            }
+            System.out.println("✅ Counted " + results.size() + " project(s) in "
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) + " ms");
+        } catch (IOException e) {
+            System.err.println("❌ Error counting issues: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Compare two issue snapshots of a project, by default the two most recent exports
+     */
+    private static void handleDiffReports(String[] args) {
+        List<String> arguments = positionalArguments(args);
+        if (arguments.size() != 1 && arguments.size() != 3) {
+            System.err.println("❌ Usage: java -jar fat.jar diffReports <project_key> [<old_snapshot> <new_snapshot>]");
+            return;
+        }
+        
+        String projectKey = arguments.get(0);
+        File projectReportsDir = new File(System.getProperty("user.dir") + "/reports/" + projectKey);
+        File oldSnapshot;
+        File newSnapshot;
+        if (arguments.size() == 3) {
+            oldSnapshot = snapshotFile(projectReportsDir, arguments.get(1));
+            newSnapshot = snapshotFile(projectReportsDir, arguments.get(2));
+        } else {
+            List<File> snapshots = IssueSnapshot.list(projectReportsDir);
+            if (snapshots.size() < 2) {
+                System.err.println("❌ Need two issue snapshots in ./reports/" + projectKey + "/" + IssueSnapshot.DIRECTORY
+                        + "/ to compare, found " + snapshots.size() + ". Run parseReport again to take one.");
+                return;
+            }
+            oldSnapshot = snapshots.get(snapshots.size() - 2);
+            newSnapshot = snapshots.get(snapshots.size() - 1);
+        }
+        
+        System.out.println("🔍 Comparing " + oldSnapshot.getName() + " with " + newSnapshot.getName());
+        try {
+            ReportDiffResult result = new ReportDiff().diff(oldSnapshot, newSnapshot, new File(projectReportsDir, ReportDiff.DIRECTORY));
+            System.out.println("📊 New: " + result.getNewIssues() + ", fixed: " + result.getFixedIssues()
+                    + ", changed: " + result.getChangedIssues() + ", unchanged: " + result.getUnchangedIssues()
+                    + " (" + result.getDurationMillis() + " ms)");
+            System.out.println("✅ Differences written to ./reports/" + projectKey + "/" + ReportDiff.DIRECTORY + "/");
+        } catch (IOException e) {
+            System.err.println("❌ Error comparing issue snapshots: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * A snapshot given as a path, or as a file name inside the project's snapshots directory
+     */
+    private static File snapshotFile(File projectReportsDir, String name) {
+        File file = new File(name);
+        return file.isFile() ? file : new File(new File(projectReportsDir, IssueSnapshot.DIRECTORY), name);
+    }
+    
+    /**
+     * Read the export flags shared by parseReport, scanAndExport and parseAllReports, or return null when they are invalid
+     */
+    private static ExportOptions parseExportOptions(String[] args) {
+        ExportOptions options = new ExportOptions();
+        options.setSharded(hasOption(args, "--sharded"));
+        options.setShardWorkers(intOption(args, "--shard-workers", 4, 1));
+        options.setConcurrency(intOption(args, "--concurrency", 1, 1));
+        options.setSingleQuery(hasOption(args, "--single-query"));
+        options.setIncremental(hasOption(args, "--incremental"));
+        options.setSnapshot(!hasOption(args, "--no-snapshot"));
+        try {
+            options.setFormat(ReportFormat.fromName(optionValue(args, "--format", ReportFormat.CSV.getName())));
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            return null;
+        }
+        return options;
+    }
+    
+    /**
+     * Read the scan flags shared by runScan, runScans and scanAndExport, or return null when they are invalid
+     */
+    private static ScanOptions parseScanOptions(String[] args) {
+        ScanOptions options = new ScanOptions();
+        options.setMaxConcurrentScans(intOption(args, "--max-scans", 0, 0));
+        options.setTimeoutMinutes(intOption(args, "--scan-timeout", 30, 1));
+        options.setLogDirectory(optionValue(args, "--log-dir", "scan-logs"));
+        options.setScannerMemoryMb(intOption(args, "--scanner-memory-mb", 1024, 1));
+        options.setForce(hasOption(args, "--force"));
+        options.setCacheMode(optionValue(args, "--scanner-cache", ScannerCache.MODE_SHARED));
+        options.setSharedCacheDir(optionValue(args, "--scanner-cache-dir", ScannerCache.DEFAULT_SHARED_HOST_DIR));
+        options.setCacheMaxMb(longOption(args, "--scanner-cache-max-mb", 2048, 0));
+        try {
+            ScannerCache.fromOptions(options);
+        } catch (IllegalArgumentException e) {
+            System.err.println("❌ " + e.getMessage());
+            return null;
+        }
+        return options;
+    }
+    
+    /**
+     * Check whether a flag was passed after the positional arguments
+     */
+    private static boolean hasOption(String[] args, String name) {
+        for (String arg : args) {
+            if (arg.equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Collect the arguments after the mode that are neither flags nor the values of the given flags
+     */
+    private static List<String> positionalArguments(String[] args, String... valueFlags) {
+        List<String> positional = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            if (Arrays.asList(valueFlags).contains(args[i])) {
+                i++;
+            } else if (!args[i].startsWith("--")) {
+                positional.add(args[i]);
+            }
+        }
+        return positional;
+    }
+    
+    /**
+     * Read the value following a flag, or the default when the flag is absent
+     */
+    private static String optionValue(String[] args, String name, String defaultValue) {
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(name)) {
+                return args[i + 1];
+            }
+        }
+        return defaultValue;
+    }
+    
+    /**
+     * Read a whole number flag of at least min, or the default when the flag is absent
+     */
+    private static int intOption(String[] args, String name, int defaultValue, int min) {
+        return intOption(args, name, defaultValue, min, Integer.MAX_VALUE);
+    }
+    
+    private static int intOption(String[] args, String name, int defaultValue, int min, int max) {
+        return (int) numberOption(args, name, defaultValue, min, max);
+    }
+    
+    private static long longOption(String[] args, String name, long defaultValue, long min) {
+        return numberOption(args, name, defaultValue, min, Long.MAX_VALUE);
+    }
+    
+    private static long numberOption(String[] args, String name, long defaultValue, long min, long max) {
+        String value = optionValue(args, name, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            long number = Long.parseLong(value.trim());
+            if (number >= min && number <= max) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below like an out of range value
+        }
+        String range = max == Integer.MAX_VALUE || max == Long.MAX_VALUE ? "of at least " + min : "from " + min + " to " + max;
+        throw new InvalidOptionException(name + " expects a whole number " + range + ", got: " + value);
     }
     
     private static void printUsage() {
@@ -111,13 +423,35 @@ public class ProjectScanner {
         System.out.println("Usage:");
         System.out.println("  java -jar fat.jar listProjects");
         System.out.println("  java -jar fat.jar orchestrateScanning <path> <project_name> <project_key>");
-        System.out.println("  java -jar fat.jar runScan <project_path>");
-        System.out.println("  java -jar fat.jar parseReport <project_key>");
+        System.out.println("  java -jar fat.jar runScan <project_path> [scan options]");
+        System.out.println("  java -jar fat.jar runScans <manifest_file | project_path...> [--max-scans <n>] [--scan-timeout <minutes>] [--scanner-memory-mb <mb>] [scan options]");
+        System.out.println("  java -jar fat.jar parseReport <project_key> [--sharded] [--shard-workers <n>] [--concurrency <n>] [--single-query] [--incremental] [--format csv|csv.gz|csv.zst|jsonl|columnar] [--no-snapshot]");
+        System.out.println("  java -jar fat.jar scanAndExport <project_path> [--task-timeout <minutes>] [scan options] [parseReport options]");
+        System.out.println("  java -jar fat.jar parseAllReports [--workers <n>] [parseReport options]");
+        System.out.println("  java -jar fat.jar daemon [--port <n>] [--workers <n>] [scan options]");
+        System.out.println("  java -jar fat.jar diffReports <project_key> [<old_snapshot> <new_snapshot>]");
+        System.out.println("  java -jar fat.jar countIssues <project_key...> | --all [--workers <n>] [--json]");
+        System.out.println("Scan options: [--force] [--log-dir <dir>] [--scanner-cache shared|project|none] [--scanner-cache-dir <host_dir>] [--scanner-cache-max-mb <mb>]");
         System.out.println();
         System.out.println("Workflow:");
         System.out.println("  1. listProjects       - Discover existing projects in SonarQube");
         System.out.println("  2. orchestrateScanning - Create project and generate authentication token");
         System.out.println("  3. runScan            - Execute SonarQube scanner on project");
-        System.out.println("  4. parseReport        - Export analysis results to CSV files");
+        System.out.println("     runScans           - Execute SonarQube scanner on many projects concurrently");
+        System.out.println("  4. parseReport        - Export analysis results to CSV or another report format");
+        System.out.println("     parseAllReports    - Export analysis results of every project");
+        System.out.println("     countIssues        - Print issue counts by severity, type, rule and directory without exporting");
+        System.out.println("     scanAndExport      - Run steps 3 and 4 back to back, waiting for SonarQube to process the analysis");
+        System.out.println("     daemon             - Serve steps 1 to 4 over a local HTTP API with a warm client");
+        System.out.println("  5. diffReports        - List new, fixed and changed issues between two exports");
+    }
+    
+    /**
+     * A flag whose value cannot be used; main prints its message instead of a stack trace
+     */
+    private static class InvalidOptionException extends RuntimeException {
+        InvalidOptionException(String message) {
+            super(message);
+        }
     }
 }
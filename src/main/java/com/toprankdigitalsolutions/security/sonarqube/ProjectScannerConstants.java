@@ -3,8 +3,14 @@ package com.toprankdigitalsolutions.security.sonarqube;
 public class ProjectScannerConstants {
     public static final String ORCHESTRATE_SCANNING_MODE = "orchestrateScanning";
     public static final String RUN_SCAN_MODE = "runScan";
+    public static final String RUN_SCANS_MODE = "runScans";
     public static final String PARSE_REPORT_MODE = "parseReport";
+    public static final String SCAN_AND_EXPORT_MODE = "scanAndExport";
+    public static final String PARSE_ALL_REPORTS_MODE = "parseAllReports";
     public static final String LIST_PROJECTS_MODE = "listProjects";
+    public static final String DAEMON_MODE = "daemon";
+    public static final String DIFF_REPORTS_MODE = "diffReports";
+    public static final String COUNT_ISSUES_MODE = "countIssues";
     // This is the base64 encode of admin:admin, the default username:password of SonarQube
     public static final String AUTHENTICATION_HEADER_VALUE = "Basic YWRtaW46YWRtaW4=";
 }
@@ -0,0 +1,12 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+
+/**
+ * Receives exported records one at a time as they are fetched
+ */
+@FunctionalInterface
+public interface RecordSink<T> {
+    
+    void accept(T record) throws IOException;
+}
@@ -0,0 +1,174 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Compares two issue snapshots of a project in a single merge pass over their key-sorted records and
+ * writes new.csv, fixed.csv and changed.csv. Only the current record of each snapshot is held in memory.
+ */
+public class ReportDiff {
+    
+    public static final String DIRECTORY = "diff";
+    
+    /**
+     * Fields whose change makes an issue "changed"; dates move on every analysis and are left out
+     */
+    private static final String[] COMPARED_FIELDS = {
+        "rule", "severity", "component", "line", "hash",
+        "textRange_startLine", "textRange_endLine", "textRange_startOffset", "textRange_endOffset",
+        "status", "message", "effort", "debt", "author", "type", "scope"
+    };
+    
+    /**
+     * An issue still listed but moved to one of these statuses counts as fixed
+     */
+    private static final Set<String> RESOLVED_STATUSES = Set.of("RESOLVED", "CLOSED");
+    
+    private static final int[] COMPARED_INDEXES = indexesOf(COMPARED_FIELDS);
+    private static final int KEY = Arrays.asList(Issue.FIELDS).indexOf("key");
+    private static final int STATUS = Arrays.asList(Issue.FIELDS).indexOf("status");
+    
+    /**
+     * Compare two snapshots and write the differences into outputDir
+     */
+    public ReportDiffResult diff(File oldSnapshot, File newSnapshot, File outputDir) throws IOException {
+        long start = System.currentTimeMillis();
+        if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+            throw new IOException("Could not create " + outputDir);
+        }
+        
+        ReportDiffResult result = new ReportDiffResult();
+        result.setOldSnapshot(oldSnapshot.getName());
+        result.setNewSnapshot(newSnapshot.getName());
+        
+        // The diff files replace those of a previous diff only once all three are complete
+        ReportFileWriter[] writers = new ReportFileWriter[3];
+        try (IssueSnapshotReader older = new IssueSnapshotReader(oldSnapshot);
+             IssueSnapshotReader newer = new IssueSnapshotReader(newSnapshot)) {
+            writers[0] = new ReportFileWriter(new File(outputDir, "new.csv").toPath());
+            writers[1] = new ReportFileWriter(new File(outputDir, "fixed.csv").toPath());
+            writers[2] = new ReportFileWriter(new File(outputDir, "changed.csv").toPath());
+            CsvEncoder newCsv = new CsvEncoder(writers[0]);
+            CsvEncoder fixedCsv = new CsvEncoder(writers[1]);
+            CsvEncoder changedCsv = new CsvEncoder(writers[2]);
+            newCsv.writeRow(Issue.FIELDS);
+            fixedCsv.writeRow(Issue.FIELDS);
+            changedCsv.writeRow(withChangesColumn());
+            
+            String[] before = older.readRow();
+            String[] after = newer.readRow();
+            while (before != null || after != null) {
+                int order = before == null ? 1 : after == null ? -1 : compareKeys(before[KEY], after[KEY]);
+                if (order < 0) {
+                    // Only in the older export
+                    if (!isResolved(before)) {
+                        fixedCsv.writeRow(before);
+                        result.setFixedIssues(result.getFixedIssues() + 1);
+                    }
+                    before = older.readRow();
+                } else if (order > 0) {
+                    // Only in the newer export
+                    if (!isResolved(after)) {
+                        newCsv.writeRow(after);
+                        result.setNewIssues(result.getNewIssues() + 1);
+                    }
+                    after = newer.readRow();
+                } else {
+                    compareIssue(before, after, result, fixedCsv, changedCsv);
+                    before = older.readRow();
+                    after = newer.readRow();
+                }
+            }
+            for (ReportFileWriter writer : writers) {
+                writer.close();
+            }
+        } catch (IOException | RuntimeException e) {
+            for (ReportFileWriter writer : writers) {
+                if (writer != null) {
+                    writer.abort();
+                }
+            }
+            throw e;
+        }
+        
+        result.setDurationMillis(System.currentTimeMillis() - start);
+        return result;
+    }
+    
+    /**
+     * Classify an issue present in both snapshots
+     */
+    private void compareIssue(String[] before, String[] after, ReportDiffResult result,
+                              CsvEncoder fixedCsv, CsvEncoder changedCsv) throws IOException {
+        if (isResolved(after) && !isResolved(before)) {
+            fixedCsv.writeRow(after);
+            result.setFixedIssues(result.getFixedIssues() + 1);
+            return;
+        }
+        
+        StringBuilder changes = new StringBuilder();
+        for (int index : COMPARED_INDEXES) {
+            if (!sameValue(before[index], after[index])) {
+                changes.append(changes.length() == 0 ? "" : "; ")
+                        .append(Issue.FIELDS[index]).append(": ").append(before[index]).append(" -> ").append(after[index]);
+            }
+        }
+        if (changes.length() == 0) {
+            result.setUnchangedIssues(result.getUnchangedIssues() + 1);
+            return;
+        }
+        for (String value : after) {
+            changedCsv.field(value);
+        }
+        changedCsv.field(changes.toString());
+        changedCsv.endRow();
+        result.setChangedIssues(result.getChangedIssues() + 1);
+    }
+    
+    /**
+     * Snapshots rebuilt from CSV reports hold null where the API returned an empty value
+     */
+    private static boolean sameValue(String a, String b) {
+        return Objects.equals(a == null || a.isEmpty() ? null : a, b == null || b.isEmpty() ? null : b);
+    }
+    
+    private static boolean isResolved(String[] issue) {
+        return issue[STATUS] != null && RESOLVED_STATUSES.contains(issue[STATUS]);
+    }
+    
+    /**
+     * Code point order, the same as the UTF-8 byte order the snapshots are sorted in
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int codePointA = a.codePointAt(i);
+            int codePointB = b.codePointAt(j);
+            if (codePointA != codePointB) {
+                return Integer.compare(codePointA, codePointB);
+            }
+            i += Character.charCount(codePointA);
+            j += Character.charCount(codePointB);
+        }
+        return Integer.compare(a.length() - i, b.length() - j);
+    }
+    
+    private static String[] withChangesColumn() {
+        String[] headers = Arrays.copyOf(Issue.FIELDS, Issue.FIELDS.length + 1);
+        headers[Issue.FIELDS.length] = "changes";
+        return headers;
+    }
+    
+    private static int[] indexesOf(String[] fields) {
+        int[] indexes = new int[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            indexes[i] = Arrays.asList(Issue.FIELDS).indexOf(fields[i]);
+        }
+        return indexes;
+    }
+}
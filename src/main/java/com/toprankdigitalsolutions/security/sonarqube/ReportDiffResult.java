@@ -0,0 +1,29 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+/**
+ * Counts of a comparison between two issue snapshots
+ */
+@Data
+public class ReportDiffResult {
+    private String oldSnapshot;
+    private String newSnapshot;
+    
+    /**
+     * Issues only in the newer snapshot
+     */
+    private int newIssues;
+    
+    /**
+     * Issues gone from the newer snapshot, or resolved since the older one
+     */
+    private int fixedIssues;
+    
+    /**
+     * Issues in both snapshots whose compared fields differ
+     */
+    private int changedIssues;
+    private int unchangedIssues;
+    private long durationMillis;
+}
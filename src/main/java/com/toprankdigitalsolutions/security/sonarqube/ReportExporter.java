@@ -1,33 +1,54 @@
 package com.toprankdigitalsolutions.security.sonarqube;
 
-import kong.unirest.core.JsonNode;
-import kong.unirest.core.JsonResponse;
-import kong.unirest.core.json.JSONArray;
-import kong.unirest.core.json.JSONObject;
-
-import java.io.FileWriter;
+import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.OffsetDateTime;
 import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
 /**
- * Handles exporting SonarQube analysis results to CSV files
+ * Handles exporting SonarQube analysis results to report files, CSV unless another ReportFormat is chosen
  */
 public class ReportExporter {
     
+    private static final String[] SEVERITIES = {"BLOCKER", "CRITICAL", "MAJOR", "MINOR", "INFO"};
+    
     private final SonarQubeClient client;
+    private final ExportOptions options;
     
     public ReportExporter(SonarQubeClient client) {
+        this(client, new ExportOptions());
+    }
+    
+    public ReportExporter(SonarQubeClient client, ExportOptions options) {
         this.client = client;
+        this.options = options;
     }
     
     /**
      * Export all reports for a project
+     *
+     * @return true when every report was exported without errors
      */
-    public void exportAllReports(String projectKey, String outputPath) {
+    public boolean exportAllReports(String projectKey, String outputPath) {
         if (!client.isAvailable()) {
             System.err.println("❌ SonarQube server not available");
-            return;
+            return false;
         }
         
         System.out.println("🔍 Starting report export for project: " + projectKey);
@@ -36,16 +57,252 @@ public class ReportExporter {
         // Create project-specific reports directory
         createReportsDirectory(outputPath, projectKey);
         
-        // Export issues by severity
-        String[] severities = {"BLOCKER", "CRITICAL", "MAJOR", "MINOR", "INFO"};
-        for (String severity : severities) {
-            exportIssuesBySeverity(severity, outputPath, projectKey);
+        File projectReportsDir = new File(outputPath + "/reports/" + projectKey);
+        OffsetDateTime syncStart = SyncWatermark.now();
+        IssueTable snapshot = options.isSnapshot() ? new IssueTable() : null;
+        IssueSummary summary = new IssueSummary(projectKey);
+        RecordSink<Issue> exportedIssues = issue -> {
+            summary.accept(issue);
+            addToSnapshot(snapshot, issue);
+        };
+        AtomicInteger missedIssues = new AtomicInteger();
+        boolean exported;
+        if (options.isIncremental() && options.getFormat() != ReportFormat.CSV) {
+            System.out.println("ℹ️ Incremental exports merge into CSV reports only, running a full " + options.getFormat().getName() + " export");
+            exported = exportFullReports(projectKey, outputPath, exportedIssues, missedIssues, summary);
+        } else if (options.isIncremental() && canExportIncrementally(projectReportsDir)) {
+            exported = exportIncrementally(projectKey, outputPath, SyncWatermark.load(projectReportsDir), exportedIssues,
+                    missedIssues, summary);
+        } else {
+            if (options.isIncremental()) {
+                System.out.println("ℹ️ No previous export to update, running a full export");
+            }
+            exported = exportFullReports(projectKey, outputPath, exportedIssues, missedIssues, summary);
+        }
+        
+        if (!exported) {
+            System.err.println("❌ Report export finished with errors for project: " + projectKey);
+            return false;
+        }
+        
+        writeSummary(projectReportsDir, summary);
+        boolean complete = missedIssues.get() == 0;
+        if (!complete) {
+            // Neither an incremental export nor diffReports may build on reports lacking these issues
+            System.err.println("⚠️ " + missedIssues.get() + " issues were beyond the search result cap and are missing"
+                    + " from the reports; no issue snapshot or sync watermark was saved");
+            if (!options.isSharded() && !options.isSingleQuery()) {
+                System.err.println("ℹ️ Run parseReport with --sharded to export every issue");
+            }
+        }
+        // The watermark vouches for the severity CSVs that incremental exports merge into, which an export
+        // in another format leaves as they were
+        if (complete && options.getFormat() == ReportFormat.CSV) {
+            SyncWatermark.save(projectReportsDir, syncStart);
+        } else {
+            SyncWatermark.clear(projectReportsDir);
+        }
+        if (complete && snapshot != null) {
+            saveSnapshot(projectReportsDir, snapshot, syncStart);
+        }
+        System.out.println("✅ Report export completed! Check ./reports/" + projectKey + "/ for "
+                + options.getFormat().getName() + " files");
+        return true;
+    }
+    
+    /**
+     * Write summary.csv and summary.json. A failure is reported but does not fail the export.
+     */
+    private void writeSummary(File projectReportsDir, IssueSummary summary) {
+        try {
+            summary.write(projectReportsDir);
+            System.out.println("📊 Summary: " + summary.getIssues() + " issues, " + summary.getDebtMinutes()
+                    + " minutes of debt (" + IssueSummary.CSV_FILE + ", " + IssueSummary.JSON_FILE + ")");
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not write report summary: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Save the issues of this export for diffReports. A failure is reported but does not fail the export.
+     */
+    private void saveSnapshot(File projectReportsDir, IssueTable snapshot, OffsetDateTime exportedAt) {
+        try {
+            File saved = IssueSnapshot.save(projectReportsDir, snapshot, exportedAt.toInstant());
+            System.out.println("✅ Issue snapshot saved: " + IssueSnapshot.DIRECTORY + "/" + saved.getName());
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not save issue snapshot: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Download every issue and hotspot of the project
+     *
+     * @param exportedIssues receives every exported issue, for the summary and the snapshot
+     * @param missedIssues   counts the issues left out by the search result cap
+     * @param summary        also counts the exported hotspots
+     */
+    private boolean exportFullReports(String projectKey, String outputPath, RecordSink<Issue> exportedIssues,
+                                      AtomicInteger missedIssues, IssueSummary summary) {
+        List<BooleanSupplier> exportTasks = new ArrayList<>();
+        if (options.isSingleQuery()) {
+            // Export every severity from one query, routing each issue to its CSV
+            exportTasks.add(() -> exportAllIssuesInOnePass(outputPath, projectKey, exportedIssues, missedIssues));
+        } else {
+            // Export issues by severity
+            for (String severity : SEVERITIES) {
+                exportTasks.add(() -> exportIssuesBySeverity(severity, outputPath, projectKey, exportedIssues, missedIssues));
+            }
         }
         
         // Export security hotspots
-        exportSecurityHotspots(outputPath, projectKey);
+        exportTasks.add(() -> exportSecurityHotspots(outputPath, projectKey, summary));
+        
+        return runExportTasks(exportTasks);
+    }
+    
+    /**
+     * An incremental export needs a watermark and every severity CSV of the previous export
+     */
+    private boolean canExportIncrementally(File projectReportsDir) {
+        if (SyncWatermark.load(projectReportsDir) == null) {
+            return false;
+        }
+        for (String severity : SEVERITIES) {
+            if (!new File(projectReportsDir, severity + ".csv").isFile()) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Fetch only the issues updated since the last export and merge them into the existing CSVs by key.
+     * Hotspots cannot be searched by date and are exported in full.
+     */
+    private boolean exportIncrementally(String projectKey, String outputPath, OffsetDateTime lastSync,
+                                        RecordSink<Issue> exportedIssues, AtomicInteger missedIssues, IssueSummary summary) {
+        OffsetDateTime since = lastSync.minus(SyncWatermark.OVERLAP);
+        System.out.println("🔄 Fetching issues updated since " + IssueQuery.SONAR_DATE_TIME.format(since));
+        
+        Map<String, Issue> updatedIssues = new LinkedHashMap<>();
+        try {
+            int updated = new IssueFetcher(client).fetchUpdatedSince(IssueQuery.forProject(projectKey), since,
+                    issue -> updatedIssues.put(issue.getKey(), issue));
+            if (updated < 0) {
+                System.out.println("ℹ️ Too many updated issues for an incremental export, running a full export");
+                return exportFullReports(projectKey, outputPath, exportedIssues, missedIssues, summary);
+            }
+        } catch (Exception e) {
+            System.err.println("❌ Error fetching updated issues: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        System.out.println("Found " + updatedIssues.size() + " updated issues");
+        long unrouted = updatedIssues.values().stream()
+                .filter(issue -> !Arrays.asList(SEVERITIES).contains(issue.getSeverity()))
+                .count();
+        if (unrouted > 0) {
+            System.err.println("⚠️ Skipped " + unrouted + " updated issues with an unknown severity, their previous rows are dropped");
+        }
+        
+        List<BooleanSupplier> exportTasks = new ArrayList<>();
+        for (String severity : SEVERITIES) {
+            exportTasks.add(() -> mergeIssuesCsv(severity, updatedIssues, outputPath, projectKey, exportedIssues));
+        }
+        exportTasks.add(() -> exportSecurityHotspots(outputPath, projectKey, summary));
+        
+        return runExportTasks(exportTasks);
+    }
+    
+    /**
+     * Rewrite a severity CSV: rows of updated issues are dropped, then the updated issues that now
+     * have this severity are appended. The file is replaced only once the merge is complete.
+     * Every row of the merged file is also handed to exportedIssues.
+     */
+    private boolean mergeIssuesCsv(String severity, Map<String, Issue> updatedIssues, String outputPath, String projectKey,
+                                   RecordSink<Issue> exportedIssues) {
+        Path csvPath = Paths.get(outputPath, "reports", projectKey, severity + ".csv");
+        
+        int kept = 0;
+        int merged = 0;
+        ReportFileWriter csvWriter = null;
+        try (CsvReader existing = new CsvReader(new BufferedReader(new InputStreamReader(Files.newInputStream(csvPath), StandardCharsets.UTF_8)))) {
+            csvWriter = new ReportFileWriter(csvPath);
+            CsvEncoder csv = new CsvEncoder(csvWriter);
+            csv.writeRow(Issue.FIELDS);
+            
+            existing.readRow();
+            String[] row;
+            while ((row = existing.readRow()) != null) {
+                if (!updatedIssues.containsKey(row[0])) {
+                    csv.writeRow(row);
+                    exportedIssues.accept(Issue.fromValues(row));
+                    kept++;
+                }
+            }
+            
+            for (Issue issue : updatedIssues.values()) {
+                if (severity.equals(issue.getSeverity())) {
+                    issue.writeCsvRow(csv);
+                    exportedIssues.accept(issue);
+                    merged++;
+                }
+            }
+        } catch (Exception e) {
+            if (csvWriter != null) {
+                csvWriter.abort();
+            }
+            System.err.println("❌ Error merging " + severity + " issues: " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        
+        try {
+            // Publishes the merged CSV over the previous one once the existing file is no longer being read
+            csvWriter.close();
+        } catch (IOException e) {
+            System.err.println("❌ Error replacing " + severity + " CSV: " + e.getMessage());
+            return false;
+        }
+        
+        System.out.println("✅ " + severity + " issues merged: " + kept + " unchanged, " + merged + " updated");
+        return true;
+    }
+    
+    /**
+     * Run the export tasks one after another, or on a pool bounded by the configured concurrency
+     */
+    private boolean runExportTasks(List<BooleanSupplier> exportTasks) {
+        boolean allSucceeded = true;
+        if (options.getConcurrency() <= 1) {
+            for (BooleanSupplier exportTask : exportTasks) {
+                allSucceeded &= exportTask.getAsBoolean();
+            }
+            return allSucceeded;
+        }
         
-        System.out.println("✅ Report export completed! Check ./reports/" + projectKey + "/ for CSV files");
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(options.getConcurrency(), exportTasks.size()));
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (BooleanSupplier exportTask : exportTasks) {
+                futures.add(pool.submit(exportTask::getAsBoolean));
+            }
+            for (Future<Boolean> future : futures) {
+                allSucceeded &= future.get();
+            }
+            return allSucceeded;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("❌ Report export interrupted");
+            return false;
+        } catch (ExecutionException e) {
+            System.err.println("❌ Report export task failed: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
     }
     
     /**
@@ -60,184 +317,178 @@ public class ReportExporter {
     }
     
     /**
-     * Export issues for a specific severity level
+     * Export issues for a specific severity level, streaming them into the report as they are fetched
      */
-    private void exportIssuesBySeverity(String severity, String outputPath, String projectKey) {
+    private boolean exportIssuesBySeverity(String severity, String outputPath, String projectKey, RecordSink<Issue> exportedIssues,
+                                           AtomicInteger missedIssues) {
         System.out.println("Fetching " + severity + " issues for project: " + projectKey);
         
+        ReportSink<Issue> report = null;
         try {
-            JsonResponse response = client.searchIssues(projectKey, severity);
-            int responseStatus = response.getStatus();
-            System.out.println("issuesSearchResponseStatus = " + responseStatus);
-
-            if (responseStatus != 200) {
-                System.err.println("❌ Failed to fetch " + severity + " issues. Response: " + response.getBody());
-                return;
-            }
-
-            JsonNode responseBody = response.getBody();
-            JSONArray issues = responseBody.getObject().getJSONArray("issues");
-            
-            System.out.println("Found " + issues.length() + " " + severity + " issues");
-            
-            // Convert to Issue objects and write CSV
-            ArrayList<Issue> listOfIssues = convertJsonToIssues(issues);
-            writeIssuesCsv(listOfIssues, severity, outputPath, projectKey);
+            report = options.getFormat().openIssueSink(reportPath(outputPath, projectKey, severity));
+            IssueQuery query = IssueQuery.forProject(projectKey).withSeverities(severity);
+            FetchResult exported = fetchIssues(query, both(report, exportedIssues));
+            report.close();
+            missedIssues.addAndGet(exported.getMissed());
             
+            System.out.println("✅ " + severity + " issues exported: " + exported.getFetched() + " records");
+            return true;
+        
         } catch (Exception e) {
+            abortReport(report);
             System.err.println("❌ Error fetching " + severity + " issues: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
     
     /**
-     * Export security hotspots
+     * Export issues of every severity with a single sharded query, routing each issue to its severity report
      */
-    private void exportSecurityHotspots(String outputPath, String projectKey) {
-        System.out.println("Fetching security hotspots for project: " + projectKey);
+    private boolean exportAllIssuesInOnePass(String outputPath, String projectKey, RecordSink<Issue> exportedIssues,
+                                             AtomicInteger missedIssues) {
+        System.out.println("Fetching issues of all severities for project: " + projectKey);
         
+        Map<String, ReportSink<Issue>> reports = new LinkedHashMap<>();
+        Map<String, Integer> exportedBySeverity = new LinkedHashMap<>();
         try {
-            JsonResponse response = client.searchHotspots(projectKey);
-            int responseStatus = response.getStatus();
-            System.out.println("hotspotsSearchResponseStatus = " + responseStatus);
-
-            if (responseStatus != 200) {
-                System.err.println("❌ Failed to fetch security hotspots. Response: " + response.getBody());
-                return;
+            for (String severity : SEVERITIES) {
+                reports.put(severity, options.getFormat().openIssueSink(reportPath(outputPath, projectKey, severity)));
+                exportedBySeverity.put(severity, 0);
             }
-
-            JsonNode responseBody = response.getBody();
-            JSONArray hotspots = responseBody.getObject().getJSONArray("hotspots");
             
-            System.out.println("Found " + hotspots.length() + " security hotspots");
-            
-            // Convert to Hotspot objects and write CSV
-            ArrayList<Hotspot> listOfHotspots = convertJsonToHotspots(hotspots);
-            writeHotspotsCsv(listOfHotspots, outputPath, projectKey);
+            // SonarQube caps one unfiltered search at 10,000 issues for all severities together, so the
+            // query is always sharded; a project under the cap costs a single extra count request
+            int[] unrouted = {0};
+            FetchResult fetched = new ShardedIssueFetcher(client, options.getShardWorkers()).fetchAll(IssueQuery.forProject(projectKey), issue -> {
+                ReportSink<Issue> report = reports.get(issue.getSeverity());
+                if (report == null) {
+                    unrouted[0]++;
+                    return;
+                }
+                report.accept(issue);
+                exportedIssues.accept(issue);
+                exportedBySeverity.merge(issue.getSeverity(), 1, Integer::sum);
+            });
+            for (ReportSink<Issue> report : reports.values()) {
+                report.close();
+            }
+            missedIssues.addAndGet(fetched.getMissed());
             
+            exportedBySeverity.forEach((severity, exported) ->
+                    System.out.println("✅ " + severity + " issues exported: " + exported + " records"));
+            if (unrouted[0] > 0) {
+                System.err.println("⚠️ Skipped " + unrouted[0] + " issues with an unknown severity");
+            }
+            return true;
+        
         } catch (Exception e) {
-            System.err.println("❌ Error fetching security hotspots: " + e.getMessage());
+            // Reports already closed stay published; the others keep their previous version
+            for (ReportSink<Issue> report : reports.values()) {
+                abortReport(report);
+            }
+            System.err.println("❌ Error fetching issues: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
     
     /**
-     * Convert JSON array to Issue objects
+     * Discard a report whose export failed, leaving the previous report in place
      */
-    private ArrayList<Issue> convertJsonToIssues(JSONArray issues) {
-        ArrayList<Issue> listOfIssues = new ArrayList<>();
-        
-        issues.forEach(issueNode -> {
-            Issue issue = new Issue();
-            JSONObject jsonObject = (JSONObject) issueNode;
-            
-            issue.setKey(jsonObject.optString("key"));
-            issue.setRule(jsonObject.optString("rule"));
-            issue.setSeverity(jsonObject.optString("severity"));
-            issue.setComponent(jsonObject.optString("component"));
-            issue.setProject(jsonObject.optString("project"));
-            issue.setLine(jsonObject.optString("line"));
-            issue.setHash(jsonObject.optString("hash"));
-            issue.setTextRange_startLine(jsonObject.optString("textRange_startLine"));
-            issue.setTextRange_endLine(jsonObject.optString("textRange_endLine"));
-            issue.setTextRange_startOffset(jsonObject.optString("textRange_startOffset"));
-            issue.setTextRange_endOffset(jsonObject.optString("textRange_endOffset"));
-            issue.setStatus(jsonObject.optString("status"));
-            issue.setMessage(jsonObject.optString("message"));
-            issue.setEffort(jsonObject.optString("effort"));
-            issue.setDebt(jsonObject.optString("debt"));
-            issue.setAuthor(jsonObject.optString("author"));
-            issue.setCreationDate(jsonObject.optString("creationDate"));
-            issue.setUpdateDate(jsonObject.optString("updateDate"));
-            issue.setType(jsonObject.optString("type"));
-            issue.setScope(jsonObject.optString("scope"));
-            
-            listOfIssues.add(issue);
-        });
-        
-        return listOfIssues;
+    private static void abortReport(ReportSink<?> report) {
+        if (report == null) {
+            return;
+        }
+        try {
+            report.abort();
+        } catch (IOException e) {
+            System.err.println("⚠️ Error discarding report: " + e.getMessage());
+        }
     }
     
     /**
-     * Convert JSON array to Hotspot objects
+     * A sink handing each record to first, then to second
      */
-    private ArrayList<Hotspot> convertJsonToHotspots(JSONArray hotspots) {
-        ArrayList<Hotspot> listOfHotspots = new ArrayList<>();
-        
-        hotspots.forEach(hotspotNode -> {
-            Hotspot hotspot = new Hotspot();
-            JSONObject jsonObject = (JSONObject) hotspotNode;
-            
-            hotspot.setKey(jsonObject.optString("key"));
-            hotspot.setComponent(jsonObject.optString("component"));
-            hotspot.setProject(jsonObject.optString("project"));
-            hotspot.setSecurityCategory(jsonObject.optString("securityCategory"));
-            hotspot.setVulnerabilityProbability(jsonObject.optString("vulnerabilityProbability"));
-            hotspot.setStatus(jsonObject.optString("status"));
-            hotspot.setLine(jsonObject.optString("line"));
-            hotspot.setMessage(jsonObject.optString("message"));
-            hotspot.setAuthor(jsonObject.optString("author"));
-            hotspot.setCreationDate(jsonObject.optString("creationDate"));
-            hotspot.setUpdateDate(jsonObject.optString("updateDate"));
-            
-            listOfHotspots.add(hotspot);
-        });
-        
-        return listOfHotspots;
+    private static <T> RecordSink<T> both(RecordSink<T> first, RecordSink<T> second) {
+        return record -> {
+            first.accept(record);
+            second.accept(record);
+        };
     }
     
     /**
-     * Write issues to CSV file
+     * Add an exported issue to the snapshot; severity exports running in parallel share one table
      */
-    private void writeIssuesCsv(ArrayList<Issue> listOfIssues, String severity, String outputPath, String projectKey) {
-        try {
-            String[] csvHeaders = {
-                "key", "rule", "severity", "component", "project", "line", "hash",
-                "textRange_startLine", "textRange_endLine", "textRange_startOffset", 
-                "textRange_endOffset", "status", "message", "effort", "debt", 
-                "author", "creationDate", "updateDate", "type", "scope"
-            };
-
-            String csvHeaderLine = String.join(",", csvHeaders) + System.lineSeparator();
-            String recordsAsCsv = listOfIssues.stream()
-                    .map(Issue::toCsvRow)
-                    .collect(Collectors.joining(System.lineSeparator()));
-
-            try (FileWriter csvFileWriter = new FileWriter(outputPath + "/reports/" + projectKey + "/" + severity + ".csv")) {
-                csvFileWriter.write(csvHeaderLine);
-                csvFileWriter.write(recordsAsCsv);
-                System.out.println("✅ " + severity + " issues exported: " + listOfIssues.size() + " records");
-            }
-        } catch (IOException e) {
-            System.err.println("❌ Error writing " + severity + " CSV: " + e.getMessage());
-            e.printStackTrace();
+    private static void addToSnapshot(IssueTable snapshot, Issue issue) {
+        if (snapshot == null) {
+            return;
+        }
+        synchronized (snapshot) {
+            snapshot.add(issue);
+        }
+    }
+    
+    /**
+     * Fetch every issue of a query with the configured fetch mode
+     */
+    private FetchResult fetchIssues(IssueQuery query, RecordSink<Issue> sink) throws IOException {
+        if (options.isSharded()) {
+            return new ShardedIssueFetcher(client, options.getShardWorkers()).fetchAll(query, sink);
         }
+        return new IssueFetcher(client).fetchAll(query, sink);
     }
     
     /**
-     * Write hotspots to CSV file
+     * Export security hotspots, streaming them into the report as they are fetched
      */
-    private void writeHotspotsCsv(ArrayList<Hotspot> listOfHotspots, String outputPath, String projectKey) {
+    private boolean exportSecurityHotspots(String outputPath, String projectKey, IssueSummary summary) {
+        System.out.println("Fetching security hotspots for project: " + projectKey);
+        
+        ReportSink<Hotspot> report = null;
         try {
-            String[] csvHeaders = {
-                "key", "component", "project", "securityCategory", "vulnerabilityProbability",
-                "status", "line", "message", "author", "creationDate", "updateDate"
-            };
-
-            String csvHeaderLine = String.join(",", csvHeaders) + System.lineSeparator();
-            String recordsAsCsv = listOfHotspots.stream()
-                    .map(Hotspot::toCsvRow)
-                    .collect(Collectors.joining(System.lineSeparator()));
-
-            try (FileWriter csvFileWriter = new FileWriter(outputPath + "/reports/" + projectKey + "/hotspots.csv")) {
-                csvFileWriter.write(csvHeaderLine);
-                csvFileWriter.write(recordsAsCsv);
-                System.out.println("✅ Security hotspots exported: " + listOfHotspots.size() + " records");
+            report = options.getFormat().openHotspotSink(reportPath(outputPath, projectKey, "hotspots"));
+            RecordSink<Hotspot> sink = both(report, summary::acceptHotspot);
+            int exported = 0;
+            int total;
+            int page = 1;
+            do {
+                SearchPage searchPage = client.streamHotspots(projectKey, page, SonarQubeClient.MAX_PAGE_SIZE, sink);
+                if (searchPage.getFailure() != null) {
+                    abortReport(report);
+                    System.err.println("❌ Failed to fetch security hotspots (page " + page + "). " + searchPage.getFailure().getMessage());
+                    return false;
+                }
+                total = searchPage.getTotal();
+                if (searchPage.getCount() == 0) {
+                    break;
+                }
+                
+                exported += searchPage.getCount();
+                page++;
+            } while (exported < total && page * SonarQubeClient.MAX_PAGE_SIZE <= SonarQubeClient.MAX_SEARCH_RESULTS);
+            
+            System.out.println("Found " + total + " security hotspots");
+            if (exported < total) {
+                System.err.println("⚠️ SonarQube stops paging at " + SonarQubeClient.MAX_SEARCH_RESULTS
+                        + " results, only " + exported + " of " + total + " security hotspots were exported");
             }
-        } catch (IOException e) {
-            System.err.println("❌ Error writing hotspots CSV: " + e.getMessage());
+            report.close();
+            System.out.println("✅ Security hotspots exported: " + exported + " records");
+            return true;
+        
+        } catch (Exception e) {
+            abortReport(report);
+            System.err.println("❌ Error fetching security hotspots: " + e.getMessage());
             e.printStackTrace();
+            return false;
         }
     }
+    
+    /**
+     * Path of a report file in the configured format, such as reports/&lt;projectKey&gt;/MAJOR.csv
+     */
+    private String reportPath(String outputPath, String projectKey, String baseName) {
+        return outputPath + "/reports/" + projectKey + "/" + options.getFormat().fileName(baseName);
+    }
 }
-
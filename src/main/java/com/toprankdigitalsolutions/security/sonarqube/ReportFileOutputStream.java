@@ -0,0 +1,208 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes a report file through a FileChannel. Bytes collect in a large buffer; a full buffer is
+ * written at its file position by a background writer while the caller fills the next one, so the
+ * reports of an export are written concurrently with each other and with fetching.
+ * <p>
+ * The data goes to &lt;name&gt;.tmp and close() renames it over the report atomically, so readers see either
+ * the previous report or the complete new one. abort() deletes the partial file instead.
+ */
+public class ReportFileOutputStream extends OutputStream {
+    
+    static final int BUFFER_SIZE = 1024 * 1024;
+    
+    /**
+     * Buffers are reused across files; this bounds the idle ones kept. They are heap buffers because the
+     * UTF-8 encoder only takes its fast path when both sides are backed by arrays
+     */
+    private static final BlockingQueue<ByteBuffer> IDLE_BUFFERS = new ArrayBlockingQueue<>(16);
+    
+    private static final ExecutorService WRITERS = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "report-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    private final Path target;
+    private final Path partial;
+    private final FileChannel channel;
+    private ByteBuffer buffer;
+    private ByteBuffer writing;
+    private Future<?> pendingWrite;
+    private long position;
+    private boolean committed;
+    private boolean aborted;
+    
+    public ReportFileOutputStream(Path target) throws IOException {
+        this.target = target;
+        this.partial = target.resolveSibling(target.getFileName() + ".tmp");
+        this.channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        this.buffer = acquireBuffer();
+    }
+    
+    @Override
+    public void write(int b) throws IOException {
+        if (buffer == null || !buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) b);
+    }
+    
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (buffer == null || !buffer.hasRemaining()) {
+                drain();
+            }
+            int chunk = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+    
+    /**
+     * Does nothing: the file is only visible once closed, so there is no reason to write a partial buffer
+     */
+    @Override
+    public void flush() {
+    }
+    
+    /**
+     * Bytes written so far, including those still buffered
+     */
+    public long getBytesWritten() {
+        return position + (buffer == null ? 0 : buffer.position());
+    }
+    
+    /**
+     * Write what is left, wait for the background writes and move the file into place
+     */
+    @Override
+    public void close() throws IOException {
+        if (committed || aborted) {
+            return;
+        }
+        try {
+            drain();
+            awaitPendingWrite();
+            channel.close();
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            abort();
+            throw e;
+        }
+        committed = true;
+        releaseBuffer(buffer);
+        buffer = null;
+    }
+    
+    /**
+     * Delete the partial file and leave any previous report in place. Later writes are discarded
+     */
+    public void abort() {
+        if (committed || aborted) {
+            return;
+        }
+        aborted = true;
+        try {
+            awaitPendingWrite();
+        } catch (IOException e) {
+            // The file is discarded anyway
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(partial);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not delete partial report " + partial + ": " + e.getMessage());
+        }
+        buffer.clear();
+    }
+    
+    /**
+     * Buffer that the next bytes go into, for ReportFileWriter to encode into directly
+     */
+    ByteBuffer buffer() {
+        return buffer;
+    }
+    
+    /**
+     * Hand the filled buffer to a background writer and continue in a fresh one. At most one write per
+     * file is in flight, so a slow disk holds each file to two buffers.
+     */
+    void drain() throws IOException {
+        if (committed) {
+            throw new IOException("Report already closed: " + target);
+        }
+        if (aborted || buffer.position() == 0) {
+            buffer.clear();
+            return;
+        }
+        awaitPendingWrite();
+        
+        ByteBuffer full = buffer;
+        full.flip();
+        long at = position;
+        position += full.remaining();
+        writing = full;
+        pendingWrite = WRITERS.submit(() -> {
+            long offset = at;
+            while (full.hasRemaining()) {
+                offset += channel.write(full, offset);
+            }
+            return null;
+        });
+        buffer = acquireBuffer();
+    }
+    
+    private void awaitPendingWrite() throws IOException {
+        if (pendingWrite == null) {
+            return;
+        }
+        try {
+            pendingWrite.get();
+        } catch (InterruptedException e) {
+            // The write may still be running, so its buffer is not reused
+            pendingWrite = null;
+            writing = null;
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + target, e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause()
+                    : new IOException("Failed to write " + target, e.getCause());
+        } finally {
+            if (writing != null) {
+                releaseBuffer(writing);
+            }
+            pendingWrite = null;
+            writing = null;
+        }
+    }
+    
+    private static ByteBuffer acquireBuffer() {
+        ByteBuffer idle = IDLE_BUFFERS.poll();
+        return idle != null ? idle : ByteBuffer.allocate(BUFFER_SIZE);
+    }
+    
+    private static void releaseBuffer(ByteBuffer buffer) {
+        buffer.clear();
+        IDLE_BUFFERS.offer(buffer);
+    }
+}
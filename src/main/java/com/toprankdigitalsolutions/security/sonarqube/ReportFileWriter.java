@@ -0,0 +1,117 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+/**
+ * Writes text as UTF-8, whatever the platform charset, straight into the buffers of a
+ * ReportFileOutputStream. Like the stream, close() publishes the file and abort() discards it.
+ */
+public class ReportFileWriter extends Writer {
+    
+    private static final int CHAR_BUFFER_SIZE = 16 * 1024;
+    
+    private final ReportFileOutputStream out;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    private boolean closed;
+    
+    public ReportFileWriter(Path target) throws IOException {
+        this(new ReportFileOutputStream(target));
+    }
+    
+    public ReportFileWriter(ReportFileOutputStream out) {
+        this.out = out;
+    }
+    
+    @Override
+    public void write(int c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put((char) c);
+    }
+    
+    @Override
+    public void write(char[] source, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int chunk = Math.min(length, chars.remaining());
+            chars.put(source, offset, chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+    
+    @Override
+    public void write(String source, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int chunk = Math.min(length, chars.remaining());
+            chars.put(source, offset, offset + chunk);
+            offset += chunk;
+            length -= chunk;
+        }
+    }
+    
+    /**
+     * Does nothing, see ReportFileOutputStream.flush()
+     */
+    @Override
+    public void flush() {
+    }
+    
+    public long getBytesWritten() {
+        return out.getBytesWritten();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            encode(true);
+            while (encoder.flush(out.buffer()).isOverflow()) {
+                out.drain();
+            }
+        } catch (IOException | RuntimeException e) {
+            out.abort();
+            throw e;
+        }
+        out.close();
+    }
+    
+    public void abort() {
+        closed = true;
+        out.abort();
+    }
+    
+    /**
+     * Encode the buffered characters; a trailing high surrogate waits for its pair unless this is the end
+     */
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        while ((result = encoder.encode(chars, out.buffer(), endOfInput)).isOverflow()) {
+            out.drain();
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        chars.compact();
+    }
+}
@@ -0,0 +1,18 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Destination of one report file. Records are written as they arrive; close() completes the file
+ */
+public interface ReportSink<T> extends RecordSink<T>, Closeable {
+    
+    /**
+     * Give up on a report whose export failed. Sinks writing through a ReportFileOutputStream delete
+     * the partial file and keep the previous report; others just close.
+     */
+    default void abort() throws IOException {
+        close();
+    }
+}
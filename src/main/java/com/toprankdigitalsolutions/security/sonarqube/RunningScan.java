@@ -0,0 +1,99 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A scanner process started by {@link ScannerExecutor#startScan}, whose output is drained in the background
+ * so that one thread can supervise many of them
+ */
+public class RunningScan {
+    
+    private final ScanResult result;
+    private final Process process;
+    private final ScannerOutputPump pump;
+    private final Runnable containerKill;
+    private final Runnable afterExit;
+    private final long startNanos;
+    private final long deadlineNanos;
+    
+    RunningScan(ScanResult result, Process process, ScannerOutputPump pump, Runnable containerKill, Runnable afterExit,
+                long startNanos, long timeoutNanos) {
+        this.result = result;
+        this.process = process;
+        this.pump = pump;
+        this.containerKill = containerKill;
+        this.afterExit = afterExit;
+        this.startNanos = startNanos;
+        this.deadlineNanos = startNanos + timeoutNanos;
+    }
+    
+    /**
+     * A scan that failed or was skipped before its process started; it is already finished
+     */
+    static RunningScan failed(ScanResult result, long startNanos) {
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return new RunningScan(result, null, null, null, null, startNanos, 0);
+    }
+    
+    public boolean isStarted() {
+        return process != null;
+    }
+    
+    /**
+     * Completes when the scanner process exits
+     */
+    public CompletableFuture<Process> onExit() {
+        return process.onExit();
+    }
+    
+    public long getDeadlineNanos() {
+        return deadlineNanos;
+    }
+    
+    public ScanResult getResult() {
+        return result;
+    }
+    
+    /**
+     * Kill a scan that ran past its deadline, here and inside the container
+     */
+    public void kill() {
+        result.setTimedOut(true);
+        process.destroyForcibly();
+        containerKill.run();
+    }
+    
+    /**
+     * Block until the scan exits or its deadline passes, killing it in the latter case
+     */
+    public ScanResult await() throws InterruptedException {
+        if (isStarted() && !process.waitFor(deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+            kill();
+        }
+        return finish();
+    }
+    
+    /**
+     * Collect the exit code, task id and duration of an exited scan once its output has been spooled
+     */
+    public ScanResult finish() throws InterruptedException {
+        if (!isStarted()) {
+            return result;
+        }
+        result.setExitCode(process.waitFor());
+        try {
+            pump.await();
+        } catch (IOException e) {
+            result.setError("Could not write scanner log: " + e.getMessage());
+        }
+        if (result.getExitCode() == 0) {
+            String taskId = pump.getCeTaskId();
+            result.setCeTaskId(taskId != null ? taskId : ComputeEngineTaskWatcher.readReportTaskFile(result.getProjectPath()));
+        }
+        afterExit.run();
+        result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return result;
+    }
+}
@@ -0,0 +1,70 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+/**
+ * Tuning switches for a multi-project scan run
+ */
+@Data
+public class ScanOptions {
+    /**
+     * Maximum number of scanner processes running at the same time (0 derives it from cores and memory)
+     */
+    private int maxConcurrentScans = 0;
+    
+    /**
+     * Memory budget of one scanner process, used to derive the concurrency when it is not set
+     */
+    private int scannerMemoryMb = 1024;
+    
+    /**
+     * A scan still running after this many minutes is killed and reported as timed out
+     */
+    private int timeoutMinutes = 30;
+    
+    /**
+     * Directory receiving one {@code <project_key>.log} file per scan
+     */
+    private String logDirectory = "scan-logs";
+    
+    /**
+     * Scan even when the sources match the fingerprint of the last successful scan
+     */
+    private boolean force = false;
+    
+    /**
+     * Leave saving the source fingerprint to the caller, which waits for SonarQube to process the analysis
+     * first; otherwise it is saved as soon as the scanner exits successfully
+     */
+    private boolean deferFingerprint = false;
+    
+    /**
+     * Where the scanner keeps SONAR_USER_HOME: "shared" (sharedCacheDir, mounted at /sonar-cache in the
+     * container), "project" (.sonar-cache in each project) or "none" (lost with the container)
+     */
+    private String cacheMode = ScannerCache.MODE_SHARED;
+    
+    /**
+     * Host directory of the shared scanner cache
+     */
+    private String sharedCacheDir = ScannerCache.DEFAULT_SHARED_HOST_DIR;
+    
+    /**
+     * Least recently used cache entries are pruned beyond this size
+     */
+    private long cacheMaxMb = 2048;
+    
+    public ScanOptions copy() {
+        ScanOptions copy = new ScanOptions();
+        copy.setMaxConcurrentScans(maxConcurrentScans);
+        copy.setScannerMemoryMb(scannerMemoryMb);
+        copy.setTimeoutMinutes(timeoutMinutes);
+        copy.setLogDirectory(logDirectory);
+        copy.setForce(force);
+        copy.setDeferFingerprint(deferFingerprint);
+        copy.setCacheMode(cacheMode);
+        copy.setSharedCacheDir(sharedCacheDir);
+        copy.setCacheMaxMb(cacheMaxMb);
+        return copy;
+    }
+}
@@ -0,0 +1,66 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans a project, waits for SonarQube to process the analysis and exports the fresh results
+ */
+public class ScanPipeline {
+    
+    private final SonarQubeClient client;
+    private final ScanOptions scanOptions;
+    private final ExportOptions exportOptions;
+    private final long taskTimeoutMillis;
+    
+    public ScanPipeline(SonarQubeClient client, ScanOptions scanOptions, ExportOptions exportOptions, long taskTimeoutMillis) {
+        this.client = client;
+        this.scanOptions = scanOptions;
+        this.exportOptions = exportOptions;
+        this.taskTimeoutMillis = taskTimeoutMillis;
+    }
+    
+    /**
+     * Run the scan, then export as soon as the Compute Engine task has finished; when the sources are
+     * unchanged and force is off the scan is skipped and the current results are exported
+     *
+     * @return true when the scan, its processing and the export all succeeded
+     */
+    public boolean scanAndExport(String projectPath, String outputPath) {
+        long startTime = System.nanoTime();
+        ScanOptions options = scanOptions.copy();
+        options.setDeferFingerprint(true);
+        ScanResult scan = new ScannerExecutor(client).scanProject(projectPath, options);
+        if (!scan.isSucceeded()) {
+            return false;
+        }
+        
+        if (scan.isSkipped()) {
+            System.out.println("ℹ️ No new analysis, exporting the results of the last scan");
+        } else if (scan.getCeTaskId() == null) {
+            System.err.println("❌ Could not find the Compute Engine task id in the scanner output or .scannerwork/report-task.txt");
+            return false;
+        }
+        
+        try {
+            if (!scan.isSkipped()) {
+                if (!new ComputeEngineTaskWatcher(client).waitForTask(scan.getCeTaskId(), taskTimeoutMillis)) {
+                    return false;
+                }
+                // Only an analysis SonarQube has processed lets the next run skip these sources
+                if (scan.getFingerprint() != null) {
+                    SourceFingerprint.save(projectPath, scan.getFingerprint());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        
+        boolean exported = new ReportExporter(client, exportOptions).exportAllReports(scan.getProjectKey(), outputPath);
+        long elapsedSeconds = TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startTime);
+        if (exported) {
+            System.out.println("✅ Scan and export of " + scan.getProjectKey() + " finished in " + elapsedSeconds + "s");
+        }
+        return exported;
+    }
+}
@@ -0,0 +1,31 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+/**
+ * Outcome of one scanner process of a multi-project run
+ */
+@Data
+public class ScanResult {
+    private String projectPath;
+    private String projectKey;
+    private int exitCode = -1;
+    private long durationMillis;
+    private boolean timedOut;
+    private String logFile;
+    private String ceTaskId;
+    private String fingerprint;
+    private boolean skipped;
+    
+    /**
+     * Whether the scanner cache held entries before the scan, or null when the cache is not persistent
+     */
+    private Boolean cacheWarm;
+    private int cacheEntriesReused;
+    private int cacheEntriesDownloaded;
+    private String error;
+    
+    public boolean isSucceeded() {
+        return exitCode == 0 && !timedOut && error == null;
+    }
+}
@@ -0,0 +1,279 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the scans of many projects through a queue drained by a capped number of scanner processes,
+ * all supervised from the calling thread
+ */
+public class ScanScheduler {
+    
+    private final ScannerExecutor executor;
+    private final ScanOptions options;
+    
+    public ScanScheduler(ScannerExecutor executor, ScanOptions options) {
+        this.executor = executor;
+        this.options = options;
+    }
+    
+    /**
+     * Read a manifest with one {@code <project_path> [container_workspace_dir]} entry per line;
+     * blank lines and lines starting with # are ignored
+     */
+    public static List<ScanTarget> readManifest(Path manifest) throws IOException {
+        List<ScanTarget> targets = new ArrayList<>();
+        for (String line : Files.readAllLines(manifest)) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            String[] parts = trimmed.split("\\s+");
+            targets.add(new ScanTarget(parts[0], parts.length > 1 ? parts[1] : ScannerExecutor.DEFAULT_WORKSPACE_DIR));
+        }
+        return targets;
+    }
+    
+    /**
+     * Scan every target, continuing past failures, and print an aggregate summary. The calling thread
+     * supervises all scanner processes; their output is drained by {@link ScannerOutputPump}s. Targets
+     * mounted at the same container directory are scanned one at a time, since each would analyse
+     * whatever that directory holds.
+     *
+     * @return the result of each target, in manifest order
+     */
+    public List<ScanResult> runScans(List<ScanTarget> targets) {
+        int concurrency = resolveConcurrency();
+        System.out.println("🔍 Scanning " + targets.size() + " project(s) with up to " + concurrency 
+                + " concurrent scanner(s), timeout " + options.getTimeoutMinutes() + " min");
+        System.out.println("📁 Scanner logs: " + new File(options.getLogDirectory()).getAbsolutePath());
+        warnAboutSharedWorkspaces(targets, concurrency);
+        
+        long startTime = System.nanoTime();
+        ScanResult[] results = new ScanResult[targets.size()];
+        Deque<Integer> queued = new ArrayDeque<>();
+        for (int i = 0; i < targets.size(); i++) {
+            queued.add(i);
+        }
+        Map<RunningScan, Integer> running = new HashMap<>();
+        Set<String> busyWorkspaces = new HashSet<>();
+        BlockingQueue<RunningScan> exited = new LinkedBlockingQueue<>();
+        int finished = 0;
+        
+        try {
+            while (!queued.isEmpty() || !running.isEmpty()) {
+                // Top up to the cap; scans that fail to start finish immediately
+                while (running.size() < concurrency) {
+                    Integer index = pollStartable(queued, targets, busyWorkspaces);
+                    if (index == null) {
+                        break;
+                    }
+                    RunningScan scan = executor.startScan(targets.get(index), options);
+                    if (scan.isStarted()) {
+                        running.put(scan, index);
+                        busyWorkspaces.add(workspaceOf(targets.get(index)));
+                        scan.onExit().thenRun(() -> exited.add(scan));
+                    } else {
+                        results[index] = scan.getResult();
+                        report(results[index], ++finished, targets.size());
+                    }
+                }
+                if (running.isEmpty()) {
+                    continue;
+                }
+                
+                RunningScan done = exited.poll(millisUntilNextDeadline(running.keySet()), TimeUnit.MILLISECONDS);
+                if (done != null) {
+                    int index = running.remove(done);
+                    busyWorkspaces.remove(workspaceOf(targets.get(index)));
+                    results[index] = done.finish();
+                    report(results[index], ++finished, targets.size());
+                } else {
+                    killOverdue(running.keySet());
+                }
+            }
+        } catch (InterruptedException e) {
+            System.err.println("❌ Scan run interrupted");
+            for (RunningScan scan : running.keySet()) {
+                scan.kill();
+            }
+            Thread.currentThread().interrupt();
+        }
+        
+        List<ScanResult> completed = new ArrayList<>();
+        for (ScanResult result : results) {
+            if (result != null) {
+                completed.add(result);
+            }
+        }
+        printSummary(completed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        return completed;
+    }
+    
+    /**
+     * Take the first queued target whose container directory no running scan is using, or null when there is none
+     */
+    static Integer pollStartable(Deque<Integer> queued, List<ScanTarget> targets, Set<String> busyWorkspaces) {
+        for (Iterator<Integer> it = queued.iterator(); it.hasNext(); ) {
+            Integer index = it.next();
+            if (!busyWorkspaces.contains(workspaceOf(targets.get(index)))) {
+                it.remove();
+                return index;
+            }
+        }
+        return null;
+    }
+    
+    private static String workspaceOf(ScanTarget target) {
+        String workspaceDir = target.getWorkspaceDir();
+        return workspaceDir.length() > 1 && workspaceDir.endsWith("/")
+                ? workspaceDir.substring(0, workspaceDir.length() - 1)
+                : workspaceDir;
+    }
+    
+    private static void warnAboutSharedWorkspaces(List<ScanTarget> targets, int concurrency) {
+        if (concurrency < 2) {
+            return;
+        }
+        Map<String, Integer> targetsByWorkspace = new LinkedHashMap<>();
+        for (ScanTarget target : targets) {
+            targetsByWorkspace.merge(workspaceOf(target), 1, Integer::sum);
+        }
+        targetsByWorkspace.forEach((workspaceDir, count) -> {
+            if (count > 1) {
+                System.err.println("⚠️ " + count + " projects are mounted at " + workspaceDir + " and are scanned one at a time;"
+                        + " give each its own container directory in a manifest to scan them in parallel");
+            }
+        });
+    }
+    
+    private static long millisUntilNextDeadline(Collection<RunningScan> scans) {
+        long nextDeadline = Long.MAX_VALUE;
+        for (RunningScan scan : scans) {
+            if (!scan.getResult().isTimedOut()) {
+                nextDeadline = Math.min(nextDeadline, scan.getDeadlineNanos());
+            }
+        }
+        if (nextDeadline == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextDeadline - System.nanoTime()));
+    }
+    
+    /**
+     * Kill every scan past its deadline; each is collected once its process exits
+     */
+    private static void killOverdue(Collection<RunningScan> scans) {
+        long now = System.nanoTime();
+        for (RunningScan scan : scans) {
+            if (!scan.getResult().isTimedOut() && now - scan.getDeadlineNanos() >= 0) {
+                scan.kill();
+            }
+        }
+    }
+    
+    private static void report(ScanResult result, int finished, int targetCount) {
+        String progress = "[" + finished + "/" + targetCount + "] ";
+        String name = result.getProjectKey() != null ? result.getProjectKey() : result.getProjectPath();
+        if (result.isSkipped()) {
+            System.out.println(progress + "⏭️ " + name + " unchanged since the last successful scan, skipped");
+        } else if (result.isSucceeded()) {
+            System.out.println(progress + "✅ " + name + " scanned in " + result.getDurationMillis() / 1000 + "s, " 
+                    + ScannerExecutor.describeCacheUsage(result));
+        } else {
+            System.err.println(progress + "❌ " + name + " failed after " + result.getDurationMillis() / 1000 + "s: " + describe(result));
+        }
+    }
+    
+    /**
+     * Use the configured cap, otherwise as many scanners as there are cores while their memory fits in three quarters of RAM
+     */
+    private int resolveConcurrency() {
+        if (options.getMaxConcurrentScans() > 0) {
+            return options.getMaxConcurrentScans();
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int byMemory = cores;
+        java.lang.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            long totalMb = ((com.sun.management.OperatingSystemMXBean) os).getTotalPhysicalMemorySize() / (1024 * 1024);
+            byMemory = (int) (totalMb * 3 / 4 / options.getScannerMemoryMb());
+        }
+        return Math.max(1, Math.min(cores, byMemory));
+    }
+    
+    private static String describe(ScanResult result) {
+        if (result.getError() != null) {
+            return result.getError();
+        }
+        if (result.isTimedOut()) {
+            return "timed out and killed";
+        }
+        return "exit code " + result.getExitCode();
+    }
+    
+    private static void printSummary(List<ScanResult> results, long wallMillis) {
+        long totalScanMillis = 0;
+        int succeeded = 0;
+        int timedOut = 0;
+        int skipped = 0;
+        long warmMillis = 0;
+        int warmScans = 0;
+        long coldMillis = 0;
+        int coldScans = 0;
+        for (ScanResult result : results) {
+            totalScanMillis += result.getDurationMillis();
+            if (result.isSucceeded()) {
+                succeeded++;
+            }
+            if (result.isTimedOut()) {
+                timedOut++;
+            }
+            if (result.isSkipped()) {
+                skipped++;
+            }
+            if (result.isSucceeded() && result.getCacheWarm() != null) {
+                if (result.getCacheWarm()) {
+                    warmMillis += result.getDurationMillis();
+                    warmScans++;
+                } else {
+                    coldMillis += result.getDurationMillis();
+                    coldScans++;
+                }
+            }
+        }
+        
+        System.out.println("=" + "=".repeat(60));
+        System.out.println(String.format("%-40s %10s %6s", "Project", "Duration", "Exit"));
+        for (ScanResult result : results) {
+            String name = result.getProjectKey() != null ? result.getProjectKey() : result.getProjectPath();
+            String exit = result.isSkipped() ? "SKIP" : result.isTimedOut() ? "TIMEOUT" : result.getError() != null ? "ERROR" : String.valueOf(result.getExitCode());
+            System.out.println(String.format("%-40s %9ds %6s", name, result.getDurationMillis() / 1000, exit));
+        }
+        System.out.println("=" + "=".repeat(60));
+        System.out.println("🔍 " + results.size() + " scan(s) in " + wallMillis / 1000 + "s wall time (" 
+                + totalScanMillis / 1000 + "s of scanner time): " + succeeded + " succeeded, " 
+                + (results.size() - succeeded) + " failed, " + timedOut + " timed out, " + skipped + " skipped as unchanged");
+        if (warmScans > 0 || coldScans > 0) {
+            System.out.println("🔥 Warm cache: " + warmScans + " scan(s)" + (warmScans > 0 ? ", " + warmMillis / warmScans / 1000 + "s average" : "")
+                    + " | ❄️ Cold cache: " + coldScans + " scan(s)" + (coldScans > 0 ? ", " + coldMillis / coldScans / 1000 + "s average" : ""));
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import lombok.Data;
+
+/**
+ * A project to scan: its path on the host and the directory it is mounted at in the scanner container
+ */
+@Data
+public class ScanTarget {
+    private String projectPath;
+    private String workspaceDir;
+    
+    public ScanTarget(String projectPath, String workspaceDir) {
+        this.projectPath = projectPath;
+        this.workspaceDir = workspaceDir;
+    }
+}
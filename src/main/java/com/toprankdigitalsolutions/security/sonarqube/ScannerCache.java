@@ -0,0 +1,397 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Persistent SONAR_USER_HOME of the scanner, so that downloaded plugins and the scanner runtime survive
+ * container restarts. By default the cache is one shared host directory mounted at {@code /sonar-cache}.
+ * A cache in each project ({@code <project>/.sonar-cache}, inside the workspace mount) is opt-in, because
+ * the scanner writes it into the source tree as root.
+ * <p>
+ * Every scan holds a shared lock on {@code .scan.lock} in the cache directory. The cache is pruned after a
+ * scan only when the exclusive lock can be taken, so a scan of another run or process is never pruned out
+ * from under it. The entries belong to root, so they are deleted from inside the container.
+ */
+public class ScannerCache {
+    
+    public static final String MODE_PROJECT = "project";
+    public static final String MODE_SHARED = "shared";
+    public static final String MODE_NONE = "none";
+    
+    /**
+     * Container path a shared cache directory must be mounted at: -v /host/dir:/sonar-cache
+     */
+    public static final String SHARED_CONTAINER_DIR = "/sonar-cache";
+    
+    /**
+     * Host directory of the shared cache when --scanner-cache-dir is not given
+     */
+    public static final String DEFAULT_SHARED_HOST_DIR = System.getProperty("user.home") + File.separator + ".sonar-scanner-cache";
+    
+    private static final String PROJECT_CACHE_DIR = ".sonar-cache";
+    private static final String EPHEMERAL_USER_HOME = "/tmp/.sonar";
+    private static final String LOCK_FILE = ".scan.lock";
+    private static final String MOUNT_MARKER_PREFIX = ".mount-check-";
+    
+    /**
+     * Scans of this process using each cache directory; a JVM may hold only one lock on a file
+     */
+    private static final Map<String, Lease> LEASES = new HashMap<>();
+    
+    private static final Set<String> VERIFIED_MOUNTS = ConcurrentHashMap.newKeySet();
+    
+    /**
+     * Each entry under SONAR_USER_HOME/cache is one downloaded file, stored under the hash of its content
+     */
+    private static final String ENTRIES_DIR = "cache";
+    
+    private final String mode;
+    private final String sharedHostDir;
+    private final long maxBytes;
+    
+    public ScannerCache(String mode, String sharedHostDir, long maxMegabytes) {
+        if (!mode.equals(MODE_PROJECT) && !mode.equals(MODE_SHARED) && !mode.equals(MODE_NONE)) {
+            throw new IllegalArgumentException("Unknown scanner cache mode: " + mode);
+        }
+        if (mode.equals(MODE_SHARED) && sharedHostDir == null) {
+            throw new IllegalArgumentException("A shared scanner cache needs the host directory mounted at " + SHARED_CONTAINER_DIR);
+        }
+        this.mode = mode;
+        this.sharedHostDir = sharedHostDir;
+        this.maxBytes = maxMegabytes * 1024 * 1024;
+    }
+    
+    public static ScannerCache fromOptions(ScanOptions options) {
+        return new ScannerCache(options.getCacheMode(), options.getSharedCacheDir(), options.getCacheMaxMb());
+    }
+    
+    public boolean isShared() {
+        return mode.equals(MODE_SHARED);
+    }
+    
+    /**
+     * SONAR_USER_HOME as seen from inside the scanner container
+     */
+    public String containerDir(String workspaceDir) {
+        switch (mode) {
+            case MODE_PROJECT:
+                return workspaceDir + "/" + PROJECT_CACHE_DIR;
+            case MODE_SHARED:
+                return SHARED_CONTAINER_DIR;
+            default:
+                return EPHEMERAL_USER_HOME;
+        }
+    }
+    
+    /**
+     * Host directory backing the cache of a project, or null when the cache is not persistent
+     */
+    public File hostDir(String projectPath) {
+        switch (mode) {
+            case MODE_PROJECT:
+                return new File(projectPath, PROJECT_CACHE_DIR);
+            case MODE_SHARED:
+                return new File(sharedHostDir);
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * Check that the shared cache directory is what the container sees at /sonar-cache, by looking for a
+     * marker file from inside the container. Without the mount the cache does not persist and every scan
+     * would look cold. Other modes need no check.
+     */
+    public boolean checkMount(String container) {
+        if (!isShared()) {
+            return true;
+        }
+        File hostDir = new File(sharedHostDir);
+        String mountKey = container + ":" + hostDir.getAbsolutePath();
+        if (VERIFIED_MOUNTS.contains(mountKey)) {
+            return true;
+        }
+        
+        File marker = new File(hostDir, MOUNT_MARKER_PREFIX + UUID.randomUUID());
+        try {
+            Files.createDirectories(hostDir.toPath());
+            Files.createFile(marker.toPath());
+            if (runInContainer(container, "test", "-f", SHARED_CONTAINER_DIR + "/" + marker.getName())) {
+                VERIFIED_MOUNTS.add(mountKey);
+                return true;
+            }
+            System.err.println("⚠️ " + hostDir + " is not mounted at " + SHARED_CONTAINER_DIR + " in " + container
+                    + ", the scanner cache will not persist");
+            System.err.println("💡 Start the container with -v " + hostDir + ":" + SHARED_CONTAINER_DIR);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not check the scanner cache mount, treating the cache as not persistent: " + e.getMessage());
+        } finally {
+            marker.delete();
+        }
+        return false;
+    }
+    
+    /**
+     * Register a scan about to use a cache directory, waiting while another process prunes it
+     */
+    public void beginScan(File hostDir) {
+        if (hostDir == null) {
+            return;
+        }
+        synchronized (LEASES) {
+            Lease lease = LEASES.computeIfAbsent(lockKey(hostDir), key -> new Lease());
+            if (lease.scans++ == 0) {
+                try {
+                    lease.lock = lock(hostDir, true);
+                } catch (IOException e) {
+                    System.err.println("⚠️ Could not lock scanner cache " + hostDir + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Unregister a finished scan, then prune the cache if no scan of any process is using it
+     *
+     * @param containerDir the cache directory as seen from inside the container
+     */
+    public void endScan(File hostDir, String container, String containerDir) {
+        if (hostDir == null) {
+            return;
+        }
+        synchronized (LEASES) {
+            String key = lockKey(hostDir);
+            Lease lease = LEASES.get(key);
+            if (lease == null || --lease.scans > 0) {
+                // The last scan of this process to finish prunes
+                return;
+            }
+            LEASES.remove(key);
+            release(lease.lock);
+            
+            FileLock exclusive;
+            try {
+                exclusive = lock(hostDir, false);
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not lock scanner cache " + hostDir + ", not pruning it: " + e.getMessage());
+                return;
+            }
+            if (exclusive == null) {
+                System.out.println("ℹ️ Scanner cache is in use by another scan, leaving pruning to it");
+                return;
+            }
+            try {
+                prune(hostDir, container, containerDir);
+            } finally {
+                release(exclusive);
+            }
+        }
+    }
+    
+    /**
+     * Names of the cached entries, used to tell reused entries from downloaded ones after a scan
+     */
+    public Set<String> entries(File hostDir) {
+        Set<String> names = new HashSet<>();
+        File[] children = hostDir == null ? null : new File(hostDir, ENTRIES_DIR).listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (!child.getName().startsWith("_")) {
+                    names.add(child.getName());
+                }
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Record how many entries a scan found in the cache and how many it had to download
+     */
+    public void recordUsage(ScanResult result, File hostDir, Set<String> entriesBefore) {
+        Set<String> entriesAfter = entries(hostDir);
+        int reused = 0;
+        for (String entry : entriesBefore) {
+            if (entriesAfter.contains(entry)) {
+                reused++;
+            }
+        }
+        result.setCacheWarm(!entriesBefore.isEmpty());
+        result.setCacheEntriesReused(reused);
+        result.setCacheEntriesDownloaded(entriesAfter.size() - reused);
+    }
+    
+    /**
+     * Delete the least recently used entries until the cache fits in its size bound; must not run
+     * while a scan is using the cache. Entries are measured here and deleted inside the container.
+     */
+    private void prune(File hostDir, String container, String containerDir) {
+        File[] children = hostDir == null ? null : new File(hostDir, ENTRIES_DIR).listFiles();
+        if (children == null) {
+            return;
+        }
+        
+        List<CacheEntry> entries = new ArrayList<>();
+        long totalBytes = 0;
+        for (File child : children) {
+            if (child.getName().startsWith("_")) {
+                continue;
+            }
+            try {
+                CacheEntry entry = measure(child.toPath());
+                entries.add(entry);
+                totalBytes += entry.bytes;
+            } catch (IOException e) {
+                System.err.println("⚠️ Could not measure scanner cache entry " + child + ": " + e.getMessage());
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+        
+        entries.sort(Comparator.comparingLong(entry -> entry.lastUsedMillis));
+        List<String> command = new ArrayList<>(List.of("rm", "-rf", "--"));
+        long freedBytes = 0;
+        for (CacheEntry entry : entries) {
+            if (totalBytes - freedBytes <= maxBytes) {
+                break;
+            }
+            command.add(containerDir + "/" + ENTRIES_DIR + "/" + entry.path.getFileName());
+            freedBytes += entry.bytes;
+        }
+        int removed = command.size() - 3;
+        try {
+            if (!runInContainer(container, command.toArray(new String[0]))) {
+                System.err.println("⚠️ Could not prune scanner cache " + hostDir + " in " + container);
+                return;
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not prune scanner cache " + hostDir + ": " + e.getMessage());
+            return;
+        }
+        System.out.println("🧹 Pruned " + removed + " scanner cache entr" + (removed == 1 ? "y" : "ies") + " ("
+                + freedBytes / (1024 * 1024) + " MB) from " + hostDir);
+    }
+    
+    /**
+     * Run a command as root in the scanner container, which owns the files it wrote to the cache
+     *
+     * @return true when the command exited with 0
+     */
+    private static boolean runInContainer(String container, String... command) throws IOException {
+        List<String> dockerCommand = new ArrayList<>(List.of("docker", "exec", "-u", "root", container));
+        dockerCommand.addAll(Arrays.asList(command));
+        Process process = new ProcessBuilder(dockerCommand)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            if (!process.waitFor(2, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                return false;
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return process.exitValue() == 0;
+    }
+    
+    /**
+     * Lock the cache directory: shared locks wait for a pruning process, the exclusive lock is only tried
+     *
+     * @return the lock, or null when the exclusive lock is held elsewhere
+     */
+    private static FileLock lock(File hostDir, boolean shared) throws IOException {
+        Files.createDirectories(hostDir.toPath());
+        FileChannel channel = FileChannel.open(new File(hostDir, LOCK_FILE).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = shared ? channel.lock(0, Long.MAX_VALUE, true) : channel.tryLock(0, Long.MAX_VALUE, false);
+            if (lock == null) {
+                channel.close();
+            }
+            return lock;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * Release a lock and close its file
+     */
+    private static void release(FileLock lock) {
+        if (lock == null) {
+            return;
+        }
+        try {
+            lock.acquiredBy().close();
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not release scanner cache lock: " + e.getMessage());
+        }
+    }
+    
+    private static String lockKey(File hostDir) {
+        try {
+            return hostDir.getCanonicalPath();
+        } catch (IOException e) {
+            return hostDir.getAbsolutePath();
+        }
+    }
+    
+    /**
+     * Size and last use of an entry; last use is the latest access or modification of any of its files
+     */
+    private static CacheEntry measure(Path entryPath) throws IOException {
+        CacheEntry entry = new CacheEntry(entryPath);
+        try (Stream<Path> files = Files.walk(entryPath)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    entry.bytes += attributes.size();
+                }
+                entry.lastUsedMillis = Math.max(entry.lastUsedMillis, Math.max(
+                        attributes.lastAccessTime().toMillis(), attributes.lastModifiedTime().toMillis()));
+            }
+        }
+        return entry;
+    }
+    
+    /**
+     * Scans of this process using one cache directory, and their shared lock
+     */
+    private static class Lease {
+        private int scans;
+        private FileLock lock;
+    }
+    
+    private static class CacheEntry {
+        private final Path path;
+        private long bytes;
+        private long lastUsedMillis;
+        
+        private CacheEntry(Path path) {
+            this.path = path;
+        }
+    }
+}
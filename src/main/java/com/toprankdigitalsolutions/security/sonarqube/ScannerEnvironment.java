@@ -0,0 +1,154 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layout facts about a project mounted in the scanner container, gathered with a single
+ * {@code docker exec} and cached per container, workspace and project path
+ */
+public class ScannerEnvironment {
+    
+    private static final String[] PROBED_DIRECTORIES = {
+        "src/main/java", "src/test/java", "src/main/kotlin", "build/classes/java/main", "target/classes"
+    };
+    
+    private static final String[] PROBED_FILES = {
+        "pom.xml", "build.gradle", "build.gradle.kts", "package.json", "sonar-project.properties"
+    };
+    
+    /**
+     * Entries older than this are probed again, since builds add binaries between scans
+     */
+    private static final long CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    
+    private static final Map<String, ScannerEnvironment> CACHE = new ConcurrentHashMap<>();
+    
+    private final boolean workspacePresent;
+    private final Set<String> directories;
+    private final Set<String> files;
+    private final long probedAtMillis;
+    
+    private ScannerEnvironment(boolean workspacePresent, Set<String> directories, Set<String> files) {
+        this.workspacePresent = workspacePresent;
+        this.directories = directories;
+        this.files = files;
+        this.probedAtMillis = System.currentTimeMillis();
+    }
+    
+    /**
+     * Return the cached layout for this container, workspace and project, probing it when unknown or stale
+     */
+    public static ScannerEnvironment probe(String container, String workspaceDir, String projectPath) {
+        String cacheKey = container + ":" + workspaceDir + ":" + projectPath;
+        ScannerEnvironment cached = CACHE.get(cacheKey);
+        if (cached != null && System.currentTimeMillis() - cached.probedAtMillis < CACHE_TTL_MILLIS) {
+            System.out.println("✅ Reusing scanner environment probed " 
+                    + TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - cached.probedAtMillis) + "s ago");
+            return cached;
+        }
+        
+        ScannerEnvironment environment = runProbe(container, workspaceDir);
+        if (environment.workspacePresent) {
+            CACHE.put(cacheKey, environment);
+        }
+        return environment;
+    }
+    
+    /**
+     * Forget every cached probe result
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+    
+    /**
+     * Test every directory and file of interest in one shell inside the container
+     */
+    private static ScannerEnvironment runProbe(String container, String workspaceDir) {
+        StringBuilder script = new StringBuilder("cd '" + workspaceDir + "' || exit 3; echo workspace;");
+        for (String directory : PROBED_DIRECTORIES) {
+            script.append(" [ -d '").append(directory).append("' ] && echo 'dir:").append(directory).append("';");
+        }
+        for (String file : PROBED_FILES) {
+            script.append(" [ -f '").append(file).append("' ] && echo 'file:").append(file).append("';");
+        }
+        script.append(" exit 0");
+        
+        boolean workspacePresent = false;
+        Set<String> directories = new HashSet<>();
+        Set<String> files = new HashSet<>();
+        try {
+            ProcessBuilder probe = new ProcessBuilder("docker", "exec", container, "sh", "-c", script.toString());
+            probe.redirectErrorStream(true);
+            Process probeProcess = probe.start();
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(probeProcess.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.equals("workspace")) {
+                        workspacePresent = true;
+                    } else if (line.startsWith("dir:")) {
+                        directories.add(line.substring(4));
+                    } else if (line.startsWith("file:")) {
+                        files.add(line.substring(5));
+                    }
+                }
+            }
+            if (probeProcess.waitFor() != 0) {
+                workspacePresent = false;
+            }
+        } catch (Exception e) {
+            workspacePresent = false;
+        }
+        return new ScannerEnvironment(workspacePresent, directories, files);
+    }
+    
+    public boolean isWorkspacePresent() {
+        return workspacePresent;
+    }
+    
+    public boolean hasTestSources() {
+        return directories.contains("src/test/java");
+    }
+    
+    /**
+     * Compiled classes directory relative to the workspace (Gradle first, then Maven), or null
+     */
+    public String getBinariesDirectory() {
+        if (directories.contains("build/classes/java/main")) {
+            return "build/classes/java/main";
+        }
+        if (directories.contains("target/classes")) {
+            return "target/classes";
+        }
+        return null;
+    }
+    
+    /**
+     * Build tools and languages recognized from marker files and source directories
+     */
+    public Set<String> getMarkers() {
+        Set<String> markers = new HashSet<>();
+        if (files.contains("pom.xml")) {
+            markers.add("maven");
+        }
+        if (files.contains("build.gradle") || files.contains("build.gradle.kts")) {
+            markers.add("gradle");
+        }
+        if (files.contains("package.json")) {
+            markers.add("javascript");
+        }
+        if (directories.contains("src/main/kotlin")) {
+            markers.add("kotlin");
+        }
+        if (files.contains("sonar-project.properties")) {
+            markers.add("sonar-project.properties");
+        }
+        return markers;
+    }
+}
@@ -1,17 +1,23 @@
 package com.toprankdigitalsolutions.security.sonarqube;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Handles execution of SonarQube scanner via Docker
  */
 public class ScannerExecutor {
     
+    public static final String DEFAULT_WORKSPACE_DIR = "/workspace";
+    
+    private static final String SCANNER_CONTAINER = "sonarqube-scanner";
+    
     private final SonarQubeClient client;
     
     public ScannerExecutor(SonarQubeClient client) {
@@ -22,13 +28,26 @@ public class ScannerExecutor {
      * Execute SonarQube scan for a project
      */
     public boolean runScan(String projectPath) {
+        return runScan(projectPath, new ScanOptions());
+    }
+    
+    /**
+     * Execute SonarQube scan for a project, unless its sources are unchanged since the last successful scan and force is off
+     */
+    public boolean runScan(String projectPath, ScanOptions options) {
+        return scanProject(projectPath, options).isSucceeded();
+    }
+    
+    /**
+     * Execute SonarQube scan for a project, streaming its output to the console, and report the
+     * Compute Engine task that processes the uploaded analysis
+     */
+    public ScanResult scanProject(String projectPath, ScanOptions options) {
         System.out.println("Running SonarQube scan for project at: " + projectPath);
+        ScanResult result = new ScanResult();
+        result.setProjectPath(projectPath);
         
-        if (!client.isAvailable()) {
-            System.err.println("❌ SonarQube server not available");
-            return false;
-        }
-        
+        long startTime = System.nanoTime();
         try {
             // Read configuration file
             Properties config = loadConfiguration(projectPath);
@@ -37,23 +56,216 @@ public class ScannerExecutor {
             
             if (projectKey == null || accessToken == null) {
                 System.err.println("❌ Missing project key or access token. Run orchestrateScanning first.");
-                return false;
+                result.setError("Missing project key or access token");
+                return result;
             }
+            result.setProjectKey(projectKey);
             
             System.out.println("Project Key: " + projectKey);
             System.out.println("Token: " + (accessToken.length() > 10 ? accessToken.substring(0, 10) + "..." : accessToken));
             
-            // Build scanner command
-            ArrayList<String> command = buildScannerCommand(projectKey, accessToken);
+            if (isUnchanged(result, options.isForce())) {
+                System.out.println("⏭️ Sources unchanged since the last successful scan, skipping (use --force to scan anyway)");
+                return result;
+            }
+            
+            // Only a scan that actually runs needs the server
+            if (!client.isAvailable()) {
+                System.err.println("❌ SonarQube server not available");
+                result.setError("SonarQube server not available");
+                return result;
+            }
             
-            // Execute scan
-            return executeScannerCommand(command, projectPath);
+            // Probe the container layout once, then build scanner command
+            ScannerCache cache = ScannerCache.fromOptions(options);
+            ScannerEnvironment environment = ScannerEnvironment.probe(SCANNER_CONTAINER, DEFAULT_WORKSPACE_DIR, projectPath);
+            ArrayList<String> command = buildScannerCommand(projectKey, accessToken, DEFAULT_WORKSPACE_DIR, 
+                    cache.containerDir(DEFAULT_WORKSPACE_DIR), environment);
+            if (command.isEmpty()) {
+                result.setError(DEFAULT_WORKSPACE_DIR + " directory not found in container");
+                return result;
+            }
+            
+            // Execute scan; the cache is pruned once no scan is using it
+            File cacheDir = cache.checkMount(SCANNER_CONTAINER) ? cache.hostDir(projectPath) : null;
+            cache.beginScan(cacheDir);
+            try {
+                Set<String> cachedBefore = cache.entries(cacheDir);
+                executeScannerCommand(command, projectPath, options.getLogDirectory(), result);
+                saveFingerprint(result, options);
+                if (cacheDir != null) {
+                    cache.recordUsage(result, cacheDir, cachedBefore);
+                    System.out.println(describeCacheUsage(result));
+                }
+            } finally {
+                cache.endScan(cacheDir, SCANNER_CONTAINER, cache.containerDir(DEFAULT_WORKSPACE_DIR));
+            }
             
         } catch (IOException | InterruptedException e) {
             System.err.println("Error running scan: " + e.getMessage());
             e.printStackTrace();
+            result.setError(e.getMessage());
+        } finally {
+            result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime));
+        }
+        return result;
+    }
+    
+    /**
+     * Execute one scan of a multi-project run and wait for it: the scanner output goes to a per-project
+     * log file and the scanner is killed once the timeout expires
+     */
+    public ScanResult runScan(ScanTarget target, ScanOptions options) throws InterruptedException {
+        return startScan(target, options).await();
+    }
+    
+    /**
+     * Start one scan of a multi-project run without waiting for it; its output is spooled to
+     * {@code <log-dir>/<project_key>.log} in the background and only milestones reach the console
+     */
+    public RunningScan startScan(ScanTarget target, ScanOptions options) {
+        ScanResult result = new ScanResult();
+        result.setProjectPath(target.getProjectPath());
+        long startTime = System.nanoTime();
+        
+        try {
+            Properties config = loadConfiguration(target.getProjectPath());
+            String projectKey = config.getProperty("SQ_PROJECT_KEY");
+            String accessToken = config.getProperty("SQ_ACCESS_TOKEN");
+            if (projectKey == null || accessToken == null) {
+                result.setError("Missing project key or access token. Run orchestrateScanning first.");
+                return RunningScan.failed(result, startTime);
+            }
+            result.setProjectKey(projectKey);
+            
+            if (isUnchanged(result, options.isForce())) {
+                return RunningScan.failed(result, startTime);
+            }
+            
+            ScannerCache cache = ScannerCache.fromOptions(options);
+            ScannerEnvironment environment = ScannerEnvironment.probe(SCANNER_CONTAINER, target.getWorkspaceDir(), target.getProjectPath());
+            ArrayList<String> command = buildScannerCommand(projectKey, accessToken, target.getWorkspaceDir(), 
+                    cache.containerDir(target.getWorkspaceDir()), environment);
+            if (command.isEmpty()) {
+                result.setError(target.getWorkspaceDir() + " directory not found in container");
+                return RunningScan.failed(result, startTime);
+            }
+            
+            File logFile = logFile(options.getLogDirectory(), projectKey);
+            result.setLogFile(logFile.getPath());
+            
+            // The cache is pruned once no scan is using it
+            File cacheDir = cache.checkMount(SCANNER_CONTAINER) ? cache.hostDir(target.getProjectPath()) : null;
+            String containerCacheDir = cache.containerDir(target.getWorkspaceDir());
+            cache.beginScan(cacheDir);
+            Set<String> cachedBefore = cache.entries(cacheDir);
+            Runnable afterExit = () -> {
+                if (cacheDir != null) {
+                    cache.recordUsage(result, cacheDir, cachedBefore);
+                }
+                saveFingerprint(result, options);
+                cache.endScan(cacheDir, SCANNER_CONTAINER, containerCacheDir);
+            };
+            
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.directory(new File(target.getProjectPath()));
+            processBuilder.redirectErrorStream(true);
+            Process process;
+            try {
+                process = processBuilder.start();
+            } catch (IOException e) {
+                cache.endScan(cacheDir, SCANNER_CONTAINER, containerCacheDir);
+                throw e;
+            }
+            
+            ScannerOutputPump pump = new ScannerOutputPump(process.getInputStream(), logFile, "[" + projectKey + "] ");
+            pump.start();
+            return new RunningScan(result, process, pump, () -> killScannerInContainer(projectKey), afterExit,
+                    startTime, TimeUnit.MINUTES.toNanos(options.getTimeoutMinutes()));
+        } catch (IOException e) {
+            result.setError(e.getMessage());
+            return RunningScan.failed(result, startTime);
+        }
+    }
+    
+    /**
+     * Fingerprint the project sources into the result and mark it skipped when they match the last successful scan
+     */
+    private static boolean isUnchanged(ScanResult result, boolean force) {
+        try {
+            result.setFingerprint(SourceFingerprint.compute(result.getProjectPath(), result.getProjectKey()));
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not fingerprint " + result.getProjectPath() + ", scanning anyway: " + e.getMessage());
+            return false;
+        }
+        if (force || !result.getFingerprint().equals(SourceFingerprint.load(result.getProjectPath()))) {
             return false;
         }
+        result.setSkipped(true);
+        result.setExitCode(0);
+        return true;
+    }
+    
+    /**
+     * Remember the sources of a successful scan so the next run can skip them, unless the caller defers
+     * that until SonarQube has processed the analysis
+     */
+    private static void saveFingerprint(ScanResult result, ScanOptions options) {
+        if (result.isSucceeded() && result.getFingerprint() != null && !options.isDeferFingerprint()) {
+            SourceFingerprint.save(result.getProjectPath(), result.getFingerprint());
+        }
+    }
+    
+    /**
+     * One line telling whether the scan started with a warm cache and how much it had to download
+     */
+    public static String describeCacheUsage(ScanResult result) {
+        if (result.getCacheWarm() == null) {
+            return "ℹ️ Scanner cache is not persistent";
+        }
+        return (result.getCacheWarm() ? "🔥 Warm" : "❄️ Cold") + " scanner cache: " + result.getCacheEntriesReused() 
+                + " entries reused, " + result.getCacheEntriesDownloaded() + " downloaded";
+    }
+    
+    private static File logFile(String logDirectory, String projectKey) {
+        File directory = new File(logDirectory);
+        directory.mkdirs();
+        return new File(directory, projectKey + ".log");
+    }
+    
+    /**
+     * Killing the local 'docker exec' client leaves the scanner running in the container, so stop it there too.
+     * The pattern matches the whole -Dsonar.projectKey argument, so scans of keys such as "app.api" or "app-web"
+     * keep running when "app" is stopped.
+     */
+    private void killScannerInContainer(String projectKey) {
+        String pattern = "-Dsonar\\.projectKey=" + extendedRegexLiteral(projectKey) + "( |$)";
+        try {
+            new ProcessBuilder("docker", "exec", SCANNER_CONTAINER, "pkill", "-f", "--", pattern)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                    .start()
+                    .waitFor(30, TimeUnit.SECONDS);
+        } catch (IOException e) {
+            System.err.println("⚠️ Could not stop scanner of " + projectKey + " in container: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Escape every character a POSIX extended regular expression, as used by pkill, treats specially
+     */
+    static String extendedRegexLiteral(String value) {
+        StringBuilder literal = new StringBuilder(value.length() + 8);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ("\\.[]()*+?{}|^$".indexOf(c) >= 0) {
+                literal.append('\\');
+            }
+            literal.append(c);
+        }
+        return literal.toString();
     }
     
     /**
@@ -76,31 +288,35 @@ public class ScannerExecutor {
     /**
      * Build the scanner command with intelligent path detection
      */
-    private ArrayList<String> buildScannerCommand(String projectKey, String accessToken) {
+    private ArrayList<String> buildScannerCommand(String projectKey, String accessToken, String workspaceDir, String sonarUserHome,
+                                                  ScannerEnvironment environment) {
         ArrayList<String> command = new ArrayList<>();
         command.add("docker");
         command.add("exec");
         command.add("-u");
         command.add("root");
         command.add("-e");
-        command.add("SONAR_USER_HOME=/tmp/.sonar");
+        command.add("SONAR_USER_HOME=" + sonarUserHome);
         // Only set working directory if /workspace exists
-        if (directoryExists("/workspace")) {
+        if (environment.isWorkspacePresent()) {
             command.add("-w");
-            command.add("/workspace");
-            System.out.println("✅ Using /workspace as working directory");
+            command.add(workspaceDir);
+            System.out.println("✅ Using " + workspaceDir + " as working directory");
         } else {
-            System.err.println("❌ /workspace directory not found in container");
-            System.err.println("💡 Make sure to mount your project: -v /path/to/project:/workspace");
+            System.err.println("❌ " + workspaceDir + " directory not found in container");
+            System.err.println("💡 Make sure to mount your project: -v /path/to/project:" + workspaceDir);
             return new ArrayList<>(); // Return empty command to fail gracefully
         }
-        command.add("sonarqube-scanner");
+        if (!environment.getMarkers().isEmpty()) {
+            System.out.println("✅ Detected: " + String.join(", ", environment.getMarkers()));
+        }
+        command.add(SCANNER_CONTAINER);
         command.add("sonar-scanner");
         command.add("-Dsonar.projectKey=" + projectKey);
         command.add("-Dsonar.sources=src/main/java");
         
         // Check for test directory
-        if (directoryExists("/workspace/src/test/java")) {
+        if (environment.hasTestSources()) {
             command.add("-Dsonar.tests=src/test/java");
             System.out.println("✅ Test directory found, including in scan");
         } else {
@@ -108,8 +324,9 @@ public class ScannerExecutor {
         }
         
         // Check for compiled classes
-        if (directoryExists("/workspace/build/classes/java/main")) {
-            command.add("-Dsonar.java.binaries=build/classes/java/main");
+        String binariesDirectory = environment.getBinariesDirectory();
+        if (binariesDirectory != null) {
+            command.add("-Dsonar.java.binaries=" + binariesDirectory);
             System.out.println("✅ Compiled classes found, including in scan");
         } else {
             System.out.println("ℹ️ No compiled classes found, analyzing source only");
@@ -124,50 +341,36 @@ public class ScannerExecutor {
     }
     
     /**
-     * Check if a directory exists in the container
+     * Execute the scanner command, spooling its output to a log file and showing milestones,
+     * and record the exit code and Compute Engine task id
      */
-    private boolean directoryExists(String path) {
-        try {
-            ProcessBuilder testCheck = new ProcessBuilder("docker", "exec", "sonarqube-scanner", "test", "-d", path);
-            Process testProcess = testCheck.start();
-            return testProcess.waitFor() == 0;
-        } catch (Exception e) {
-            return false;
-        }
-    }
-    
-    /**
-     * Execute the scanner command and stream output
-     */
-    private boolean executeScannerCommand(ArrayList<String> command, String projectPath) throws IOException, InterruptedException {
+    private void executeScannerCommand(ArrayList<String> command, String projectPath, String logDirectory, ScanResult result) throws IOException, InterruptedException {
         ProcessBuilder processBuilder = new ProcessBuilder(command);
         processBuilder.directory(new java.io.File(projectPath));
         processBuilder.redirectErrorStream(true);
         
         System.out.println("Executing: " + String.join(" ", processBuilder.command()));
+        File logFile = logFile(logDirectory, result.getProjectKey());
+        result.setLogFile(logFile.getPath());
+        System.out.println("📁 Full scanner output: " + logFile.getPath());
         
-        // Start the process
+        // Start the process and drain its output in the background
         Process process = processBuilder.start();
-        
-        // Read and display output
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                System.out.println(line);
-            }
-        }
+        ScannerOutputPump pump = new ScannerOutputPump(process.getInputStream(), logFile, "");
+        pump.start();
         
         // Wait for completion
         int exitCode = process.waitFor();
+        pump.await();
+        result.setExitCode(exitCode);
         System.out.println("Scan completed with exit code: " + exitCode);
         
         if (exitCode == 0) {
             System.out.println("✅ SonarQube scan completed successfully!");
-            return true;
+            String taskId = pump.getCeTaskId();
+            result.setCeTaskId(taskId != null ? taskId : ComputeEngineTaskWatcher.readReportTaskFile(projectPath));
         } else {
             System.err.println("❌ SonarQube scan failed with exit code: " + exitCode);
-            return false;
         }
     }
 }
-
@@ -0,0 +1,165 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.regex.Pattern;
+
+/**
+ * Drains a scanner's output on background threads: every line is spooled to a log file and only
+ * milestone lines reach the console, so the scanner never waits on the terminal
+ */
+public class ScannerOutputPump {
+    
+    /**
+     * Lines buffered between the reader and the spooler; a full buffer makes the scanner wait
+     */
+    private static final int QUEUE_CAPACITY = 8192;
+    
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    
+    /**
+     * Sensor and phase boundaries, upload and processing notices, the final status and errors
+     */
+    private static final Pattern MILESTONE = Pattern.compile(
+            "ERROR|EXECUTION (SUCCESS|FAILURE)|ANALYSIS SUCCESSFUL|Analysis report uploaded|/api/ce/task\\?id="
+            + "|Total time|Sensor .*\\(done\\)|Load project repositories \\(done\\)|Indexing files|\\d+ files indexed"
+            + "|Project key:|Scanner configuration file");
+    
+    /**
+     * Marks the end of the output in the queue
+     */
+    private static final String END_OF_OUTPUT = new String("");
+    
+    private final InputStream output;
+    private final File logFile;
+    private final String consolePrefix;
+    private final BlockingQueue<String> lines = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread reader;
+    private final Thread spooler;
+    
+    private volatile String ceTaskId;
+    private volatile IOException failure;
+    private long lineCount;
+    
+    public ScannerOutputPump(InputStream output, File logFile, String consolePrefix) {
+        this.output = output;
+        this.logFile = logFile;
+        this.consolePrefix = consolePrefix;
+        this.reader = new Thread(this::readLines, "scanner-output-reader-" + logFile.getName());
+        this.spooler = new Thread(this::spoolLines, "scanner-output-spooler-" + logFile.getName());
+        reader.setDaemon(true);
+        spooler.setDaemon(true);
+    }
+    
+    public void start() {
+        reader.start();
+        spooler.start();
+    }
+    
+    /**
+     * Wait until the whole output has been spooled and the log file is closed
+     */
+    public void await() throws IOException, InterruptedException {
+        reader.join();
+        spooler.join();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Compute Engine task id announced in the output, or null when none was seen
+     */
+    public String getCeTaskId() {
+        return ceTaskId;
+    }
+    
+    /**
+     * Number of lines spooled, valid once {@link #await()} returned
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+    
+    private void readLines() {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(output))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lines.put(line);
+            }
+        } catch (IOException e) {
+            // The stream is closed under us when a timed out scanner is killed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                lines.put(END_OF_OUTPUT);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+    
+    private void spoolLines() {
+        List<String> batch = new ArrayList<>(QUEUE_CAPACITY);
+        try (Writer log = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(logFile), StandardCharsets.UTF_8), WRITE_BUFFER_SIZE)) {
+            boolean ended = false;
+            while (!ended) {
+                batch.add(lines.take());
+                lines.drainTo(batch);
+                for (String line : batch) {
+                    if (line == END_OF_OUTPUT) {
+                        ended = true;
+                        break;
+                    }
+                    log.write(line);
+                    log.write(System.lineSeparator());
+                    lineCount++;
+                    surfaceMilestone(line);
+                }
+                batch.clear();
+                // Keep the log tail current while the scanner is quiet, without flushing on every line
+                if (lines.isEmpty()) {
+                    log.flush();
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            // Keep draining so the scanner does not block on a full pipe
+            drainRemaining();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void surfaceMilestone(String line) {
+        if (ceTaskId == null) {
+            ceTaskId = ComputeEngineTaskWatcher.parseTaskId(line);
+        }
+        if (MILESTONE.matcher(line).find()) {
+            System.out.println(consolePrefix + line);
+        }
+    }
+    
+    private void drainRemaining() {
+        try {
+            while (lines.take() != END_OF_OUTPUT) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.IOException;
+
+/**
+ * Outcome of streaming one page of a search response into a sink
+ */
+public class SearchPage {
+    
+    private final int total;
+    private final int count;
+    private final IOException failure;
+    
+    SearchPage(int total, int count, IOException failure) {
+        this.total = total;
+        this.count = count;
+        this.failure = failure;
+    }
+    
+    /**
+     * Total number of results matching the search, across all pages
+     */
+    public int getTotal() {
+        return total;
+    }
+    
+    /**
+     * Number of records decoded from this page and handed to the sink
+     */
+    public int getCount() {
+        return count;
+    }
+    
+    /**
+     * Error raised while reading the page or writing its records, null on success
+     */
+    public IOException getFailure() {
+        return failure;
+    }
+}
@@ -0,0 +1,246 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import kong.unirest.core.RawResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Token-streaming decoder for /api/issues/search and /api/hotspots/search pages.
+ * <p>
+ * Reads the response body with a Jackson parser and hands each Issue or Hotspot to the sink
+ * as soon as its JSON object closes, so a page is never held as a DOM tree or a list.
+ * Missing fields stay null.
+ */
+public class SearchResponseDecoder {
+    
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    
+    private SearchResponseDecoder() {
+    }
+    
+    /**
+     * Decode an issue search response, or capture the error body of a failed request
+     */
+    public static SearchPage decodeIssuePage(RawResponse response, RecordSink<Issue> sink) {
+        if (response.getStatus() != 200) {
+            return failedPage(response);
+        }
+        try (InputStream body = response.getContent()) {
+            return decodeIssues(body, sink);
+        } catch (IOException e) {
+            return new SearchPage(0, 0, e);
+        }
+    }
+    
+    /**
+     * Decode a hotspot search response, or capture the error body of a failed request
+     */
+    public static SearchPage decodeHotspotPage(RawResponse response, RecordSink<Hotspot> sink) {
+        if (response.getStatus() != 200) {
+            return failedPage(response);
+        }
+        try (InputStream body = response.getContent()) {
+            return decodeHotspots(body, sink);
+        } catch (IOException e) {
+            return new SearchPage(0, 0, e);
+        }
+    }
+    
+    /**
+     * Stream the issues of a search response body into the sink
+     */
+    public static SearchPage decodeIssues(InputStream body, RecordSink<Issue> sink) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expect(parser, JsonToken.START_OBJECT);
+            int total = 0;
+            int count = 0;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                switch (field) {
+                    case "total":
+                        total = readTotal(parser);
+                        break;
+                    case "paging":
+                        total = readPagingTotal(parser);
+                        break;
+                    case "issues":
+                        expect(parser, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            sink.accept(readIssue(parser));
+                            count++;
+                        }
+                        break;
+                    default:
+                        skipValue(parser);
+                }
+            }
+            return new SearchPage(total, count, null);
+        }
+    }
+    
+    /**
+     * Stream the hotspots of a search response body into the sink
+     */
+    public static SearchPage decodeHotspots(InputStream body, RecordSink<Hotspot> sink) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            expect(parser, JsonToken.START_OBJECT);
+            int total = 0;
+            int count = 0;
+            String field;
+            while ((field = parser.nextFieldName()) != null) {
+                switch (field) {
+                    case "paging":
+                        total = readPagingTotal(parser);
+                        break;
+                    case "hotspots":
+                        expect(parser, JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            sink.accept(readHotspot(parser));
+                            count++;
+                        }
+                        break;
+                    default:
+                        skipValue(parser);
+                }
+            }
+            return new SearchPage(total, count, null);
+        }
+    }
+    
+    /**
+     * Read one issue object; the parser is positioned on its START_OBJECT
+     */
+    private static Issue readIssue(JsonParser parser) throws IOException {
+        Issue issue = new Issue();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            switch (field) {
+                case "key": issue.setKey(readText(parser)); break;
+                case "rule": issue.setRule(readText(parser)); break;
+                case "severity": issue.setSeverity(readText(parser)); break;
+                case "component": issue.setComponent(readText(parser)); break;
+                case "project": issue.setProject(readText(parser)); break;
+                case "line": issue.setLine(readText(parser)); break;
+                case "hash": issue.setHash(readText(parser)); break;
+                case "textRange": readTextRange(parser, issue); break;
+                case "status": issue.setStatus(readText(parser)); break;
+                case "message": issue.setMessage(readText(parser)); break;
+                case "effort": issue.setEffort(readText(parser)); break;
+                case "debt": issue.setDebt(readText(parser)); break;
+                case "author": issue.setAuthor(readText(parser)); break;
+                case "creationDate": issue.setCreationDate(readText(parser)); break;
+                case "updateDate": issue.setUpdateDate(readText(parser)); break;
+                case "type": issue.setType(readText(parser)); break;
+                case "scope": issue.setScope(readText(parser)); break;
+                default: skipValue(parser);
+            }
+        }
+        return issue;
+    }
+    
+    /**
+     * Flatten the nested textRange object into the textRange_* columns
+     */
+    private static void readTextRange(JsonParser parser, Issue issue) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            switch (field) {
+                case "startLine": issue.setTextRange_startLine(readText(parser)); break;
+                case "endLine": issue.setTextRange_endLine(readText(parser)); break;
+                case "startOffset": issue.setTextRange_startOffset(readText(parser)); break;
+                case "endOffset": issue.setTextRange_endOffset(readText(parser)); break;
+                default: skipValue(parser);
+            }
+        }
+    }
+    
+    /**
+     * Read one hotspot object; the parser is positioned on its START_OBJECT
+     */
+    private static Hotspot readHotspot(JsonParser parser) throws IOException {
+        Hotspot hotspot = new Hotspot();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            switch (field) {
+                case "key": hotspot.setKey(readText(parser)); break;
+                case "component": hotspot.setComponent(readText(parser)); break;
+                case "project": hotspot.setProject(readText(parser)); break;
+                case "securityCategory": hotspot.setSecurityCategory(readText(parser)); break;
+                case "vulnerabilityProbability": hotspot.setVulnerabilityProbability(readText(parser)); break;
+                case "status": hotspot.setStatus(readText(parser)); break;
+                case "line": hotspot.setLine(readText(parser)); break;
+                case "message": hotspot.setMessage(readText(parser)); break;
+                case "author": hotspot.setAuthor(readText(parser)); break;
+                case "creationDate": hotspot.setCreationDate(readText(parser)); break;
+                case "updateDate": hotspot.setUpdateDate(readText(parser)); break;
+                default: skipValue(parser);
+            }
+        }
+        return hotspot;
+    }
+    
+    /**
+     * Read the total of the "paging" object
+     */
+    private static int readPagingTotal(JsonParser parser) throws IOException {
+        int total = 0;
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return total;
+        }
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            if ("total".equals(field)) {
+                total = readTotal(parser);
+            } else {
+                skipValue(parser);
+            }
+        }
+        return total;
+    }
+    
+    private static int readTotal(JsonParser parser) throws IOException {
+        parser.nextToken();
+        return parser.getValueAsInt(0);
+    }
+    
+    /**
+     * Read a scalar value as text; objects and arrays are skipped and read as null
+     */
+    private static String readText(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        return parser.getText();
+    }
+    
+    private static void skipValue(JsonParser parser) throws IOException {
+        parser.nextToken();
+        parser.skipChildren();
+    }
+    
+    private static void expect(JsonParser parser, JsonToken expected) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token != expected) {
+            throw new IOException("Unexpected JSON token " + token + ", expected " + expected);
+        }
+    }
+    
+    private static SearchPage failedPage(RawResponse response) {
+        return new SearchPage(0, 0, new IOException("HTTP " + response.getStatus() + ". Response: "
+                + response.getContentAsString()));
+    }
+}
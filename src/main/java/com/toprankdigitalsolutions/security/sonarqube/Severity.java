@@ -0,0 +1,8 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+/**
+ * Issue severities, most severe first
+ */
+public enum Severity {
+    BLOCKER, CRITICAL, MAJOR, MINOR, INFO
+}
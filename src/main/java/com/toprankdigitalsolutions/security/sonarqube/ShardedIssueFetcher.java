@@ -0,0 +1,230 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import kong.unirest.core.JsonResponse;
+import kong.unirest.core.json.JSONArray;
+import kong.unirest.core.json.JSONObject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fetches issue queries that exceed the 10,000 result cap of /api/issues/search.
+ * <p>
+ * The query is split adaptively: first by halving its creation-date range, then, once a
+ * slice cannot be narrowed below one second, by directory and finally by file. Every shard
+ * that fits under the cap is paged on a bounded worker pool, and issues are de-duplicated
+ * by key before they reach the sink.
+ */
+public class ShardedIssueFetcher {
+    
+    private final SonarQubeClient client;
+    private final IssueFetcher fetcher;
+    private final int workers;
+    
+    public ShardedIssueFetcher(SonarQubeClient client, int workers) {
+        this.client = client;
+        this.fetcher = new IssueFetcher(client);
+        this.workers = workers;
+    }
+    
+    /**
+     * Fetch every issue of a query, splitting it into shards when it is too big for one search
+     *
+     * @return the number of distinct issues handed to the sink and of those left in shards that could not
+     * be split under the cap
+     */
+    public FetchResult fetchAll(IssueQuery query, RecordSink<Issue> sink) throws IOException {
+        int total = fetcher.count(query);
+        if (total <= SonarQubeClient.MAX_SEARCH_RESULTS) {
+            return fetcher.fetchAll(query, sink);
+        }
+        
+        OffsetDateTime oldest = fetcher.findCreationDate(query, true);
+        OffsetDateTime newest = fetcher.findCreationDate(query, false);
+        if (oldest == null || newest == null) {
+            // The issues changed since they were counted; page the query as a whole, which reports any issues
+            // beyond the cap instead of an empty result
+            System.err.println("⚠️ Could not find the creation date range of " + total + " issues, fetching without sharding: " + query);
+            return fetcher.fetchAll(query, sink);
+        }
+        IssueQuery ranged = query.withCreatedRange(oldest, newest.plusSeconds(1));
+        System.out.println("🧩 " + total + " issues exceed the search cap, sharding: " + query);
+        
+        Set<String> seenKeys = ConcurrentHashMap.newKeySet();
+        AtomicInteger shards = new AtomicInteger();
+        AtomicInteger missed = new AtomicInteger();
+        RecordSink<Issue> dedupSink = issue -> {
+            if (seenKeys.add(issue.getKey())) {
+                synchronized (sink) {
+                    sink.accept(issue);
+                }
+            }
+        };
+        
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            split(ranged, total, pool, dedupSink, shards, missed).join();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        System.out.println("🧩 Fetched " + seenKeys.size() + " distinct issues from " + shards.get() + " shards");
+        return new FetchResult(seenKeys.size(), missed.get());
+    }
+    
+    /**
+     * Count a shard on the pool, then fetch or split it
+     */
+    private CompletableFuture<Void> process(IssueQuery shard, ExecutorService pool, RecordSink<Issue> sink,
+                                            AtomicInteger shards, AtomicInteger missed) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return fetcher.count(shard);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool).thenCompose(total -> split(shard, total, pool, sink, shards, missed));
+    }
+    
+    /**
+     * Fetch a shard that fits under the cap, otherwise fan out to its sub-shards
+     */
+    private CompletableFuture<Void> split(IssueQuery shard, int total, ExecutorService pool, RecordSink<Issue> sink,
+                                          AtomicInteger shards, AtomicInteger missed) {
+        if (total == 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (total <= SonarQubeClient.MAX_SEARCH_RESULTS) {
+            return fetchLeaf(shard, pool, sink, shards, missed);
+        }
+        
+        List<IssueQuery> children;
+        try {
+            children = subShards(shard, total);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (children.isEmpty()) {
+            return fetchLeaf(shard, pool, sink, shards, missed);
+        }
+        
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (IssueQuery child : children) {
+            pending.add(child == shard ? fetchLeaf(shard, pool, sink, shards, missed) : process(child, pool, sink, shards, missed));
+        }
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+    }
+    
+    /**
+     * Page through a single shard on the pool
+     */
+    private CompletableFuture<Void> fetchLeaf(IssueQuery shard, ExecutorService pool, RecordSink<Issue> sink,
+                                              AtomicInteger shards, AtomicInteger missed) {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                missed.addAndGet(fetcher.fetchAll(shard, sink).getMissed());
+                shards.incrementAndGet();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, pool);
+    }
+    
+    /**
+     * Narrow a shard: halve its date range, else split by directory, else by file.
+     * When the facet values do not cover every issue, the shard itself is returned as a
+     * capped catch-all so that as much as possible is still exported.
+     */
+    private List<IssueQuery> subShards(IssueQuery shard, int total) throws IOException {
+        List<IssueQuery> children = new ArrayList<>();
+        
+        long rangeSeconds = Duration.between(shard.getCreatedAfter(), shard.getCreatedBefore()).getSeconds();
+        if (shard.getDirectory() == null && shard.getFile() == null && rangeSeconds >= 2) {
+            OffsetDateTime middle = shard.getCreatedAfter().plusSeconds(rangeSeconds / 2);
+            children.add(shard.withCreatedRange(shard.getCreatedAfter(), middle));
+            children.add(shard.withCreatedRange(middle, shard.getCreatedBefore()));
+            return children;
+        }
+        
+        String facet;
+        if (shard.getDirectory() == null && shard.getFile() == null) {
+            facet = "directories";
+        } else if (shard.getFile() == null) {
+            facet = "files";
+        } else {
+            System.err.println("⚠️ Cannot split further, only the first " + SonarQubeClient.MAX_SEARCH_RESULTS
+                    + " of " + total + " issues will be fetched for: " + shard);
+            return children;
+        }
+        
+        int covered = 0;
+        for (FacetValue value : fetchFacet(shard, facet)) {
+            children.add("directories".equals(facet) ? shard.withDirectory(value.name) : shard.withFile(value.name));
+            covered += value.count;
+        }
+        if (covered < total) {
+            System.err.println("⚠️ The " + facet + " facet covers " + covered + " of " + total
+                    + " issues, fetching the remainder as a capped shard for: " + shard);
+            children.add(shard);
+        }
+        return children;
+    }
+    
+    /**
+     * Fetch the values of one facet for a shard
+     */
+    private List<FacetValue> fetchFacet(IssueQuery shard, String facet) throws IOException {
+        JsonResponse response = client.searchIssueFacets(shard, facet);
+        if (response.getStatus() != 200) {
+            throw new IOException("Failed to fetch " + facet + " facet for: " + shard + ". Response: " + response.getBody());
+        }
+        
+        List<FacetValue> values = new ArrayList<>();
+        JSONArray facets = response.getBody().getObject().optJSONArray("facets");
+        if (facets == null) {
+            return values;
+        }
+        for (int i = 0; i < facets.length(); i++) {
+            JSONObject facetObject = facets.getJSONObject(i);
+            if (!facet.equals(facetObject.optString("property"))) {
+                continue;
+            }
+            JSONArray facetValues = facetObject.getJSONArray("values");
+            for (int j = 0; j < facetValues.length(); j++) {
+                JSONObject value = facetValues.getJSONObject(j);
+                if (value.optInt("count", 0) > 0) {
+                    values.add(new FacetValue(value.optString("val"), value.optInt("count", 0)));
+                }
+            }
+        }
+        return values;
+    }
+    
+    private static class FacetValue {
+        private final String name;
+        private final int count;
+        
+        private FacetValue(String name, int count) {
+            this.name = name;
+            this.count = count;
+        }
+    }
+}
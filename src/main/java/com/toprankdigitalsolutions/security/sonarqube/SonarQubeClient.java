@@ -1,23 +1,204 @@
 package com.toprankdigitalsolutions.security.sonarqube;
 
+import kong.unirest.core.GetRequest;
+import kong.unirest.core.HttpResponse;
 import kong.unirest.core.JsonNode;
 import kong.unirest.core.JsonResponse;
 import kong.unirest.core.Unirest;
+import kong.unirest.core.UnirestException;
+import kong.unirest.core.UnirestInstance;
 import kong.unirest.core.json.JSONArray;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
 /**
  * Handles all communication with SonarQube REST API
  */
-public class SonarQubeClient {
+public class SonarQubeClient implements AutoCloseable {
+    
+    /**
+     * Largest page size accepted by the SonarQube search endpoints
+     */
+    public static final int MAX_PAGE_SIZE = 500;
+    
+    /**
+     * SonarQube refuses to page a single search past this many results
+     */
+    public static final int MAX_SEARCH_RESULTS = 10000;
+    
+    private static final Set<Integer> RETRYABLE_STATUSES = Set.of(429, 502, 503, 504);
+    
+    private final UnirestInstance http;
+    private final HttpClientSettings settings;
+    private final AdaptiveConcurrencyLimiter limiter;
+    private volatile String baseUrl;
     
-    private String baseUrl;
+    /**
+     * Whether the server has been looked for yet; the probe only runs once something needs the server
+     */
+    private volatile boolean probed;
     
     public SonarQubeClient() {
-        this.baseUrl = detectSonarQubeUrl();
+        this(HttpClientSettings.fromSystemProperties());
+    }
+    
+    public SonarQubeClient(HttpClientSettings settings) {
+        this.http = createHttpInstance(settings);
+        this.settings = settings;
+        this.limiter = createLimiter(settings);
     }
     
     public SonarQubeClient(String baseUrl) {
+        this(baseUrl, HttpClientSettings.fromSystemProperties());
+    }
+    
+    public SonarQubeClient(String baseUrl, HttpClientSettings settings) {
+        this.http = createHttpInstance(settings);
+        this.settings = settings;
+        this.limiter = createLimiter(settings);
         this.baseUrl = baseUrl;
+        this.probed = true;
+    }
+    
+    /**
+     * Build the HTTP transport owned by this client. All requests share its connection pool, which is sized
+     * process-wide by HttpClientSettings.configureConnectionPool().
+     */
+    private static UnirestInstance createHttpInstance(HttpClientSettings settings) {
+        UnirestInstance instance = Unirest.spawnInstance();
+        instance.config()
+                .connectTimeout(settings.getConnectTimeoutMillis())
+                .requestTimeout(settings.getRequestTimeoutMillis())
+                .version(settings.isHttp2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1)
+                .requestCompression(settings.isCompression())
+                .setDefaultHeader("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE);
+        return instance;
+    }
+    
+    private static AdaptiveConcurrencyLimiter createLimiter(HttpClientSettings settings) {
+        return new AdaptiveConcurrencyLimiter(settings.getInitialConcurrency(),
+                settings.getMinConcurrency(), settings.getMaxConcurrency());
+    }
+    
+    /**
+     * Send a request through the concurrency limiter. Idempotent requests rejected with a
+     * retryable status or a failed connection are retried with jittered exponential backoff,
+     * honoring Retry-After when the server sends it.
+     *
+     * @param latencyClass requests with comparable latencies, see AdaptiveConcurrencyLimiter
+     * @param request      sends one attempt; a streamed search releases its slot once the headers are in
+     */
+    private <T> HttpResponse<T> send(String latencyClass, Function<Slot, HttpResponse<T>> request, boolean idempotent) {
+        for (int attempt = 0; ; attempt++) {
+            Slot slot = new Slot(latencyClass);
+            HttpResponse<T> response;
+            try {
+                response = request.apply(slot);
+            } catch (UnirestException e) {
+                slot.release(AdaptiveConcurrencyLimiter.Outcome.OVERLOADED);
+                if (!idempotent || attempt >= settings.getMaxRetries()) {
+                    throw e;
+                }
+                backOff(attempt, null, e.getMessage());
+                continue;
+            }
+            
+            int status = response.getStatus();
+            slot.release(status);
+            if (!idempotent || !RETRYABLE_STATUSES.contains(status) || attempt >= settings.getMaxRetries()) {
+                return response;
+            }
+            backOff(attempt, response.getHeaders().getFirst("Retry-After"), "HTTP " + status);
+        }
+    }
+    
+    /**
+     * The limiter slot of one request attempt, released once: when the response headers arrive for a
+     * streamed search, otherwise when the whole response has been read
+     */
+    private final class Slot {
+        private final String latencyClass;
+        private final long startNanos;
+        private boolean released;
+        
+        private Slot(String latencyClass) {
+            this.latencyClass = latencyClass;
+            try {
+                this.startNanos = limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnirestException(e);
+            }
+        }
+        
+        void release(int status) {
+            release(status == 429 || status == 503
+                    ? AdaptiveConcurrencyLimiter.Outcome.OVERLOADED
+                    : AdaptiveConcurrencyLimiter.Outcome.SUCCESS);
+        }
+        
+        void release(AdaptiveConcurrencyLimiter.Outcome outcome) {
+            if (!released) {
+                released = true;
+                limiter.release(latencyClass, startNanos, outcome);
+            }
+        }
+    }
+    
+    /**
+     * Sleep before the next attempt: Retry-After when given, otherwise full-jitter exponential backoff
+     */
+    private void backOff(int attempt, String retryAfter, String reason) {
+        long exponentialMillis = Math.min(settings.getRetryMaxDelayMillis(),
+                (long) settings.getRetryBaseDelayMillis() << Math.min(attempt, 20));
+        long delayMillis = ThreadLocalRandom.current().nextLong(exponentialMillis + 1);
+        Long retryAfterMillis = parseRetryAfter(retryAfter);
+        if (retryAfterMillis != null) {
+            delayMillis = Math.min(settings.getRetryMaxDelayMillis(), retryAfterMillis);
+        }
+        
+        System.err.println("⚠️ SonarQube request failed (" + reason + "), retry " + (attempt + 1)
+                + "/" + settings.getMaxRetries() + " in " + delayMillis + " ms");
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnirestException(e);
+        }
+    }
+    
+    /**
+     * Parse a Retry-After header given in seconds or as an HTTP date
+     */
+    private static Long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.parseLong(retryAfter.trim()) * 1000;
+        } catch (NumberFormatException e) {
+            try {
+                ZonedDateTime retryAt = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME);
+                return Math.max(0, Duration.between(ZonedDateTime.now(), retryAt).toMillis());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Release the pooled connections
+     */
+    @Override
+    public void close() {
+        http.shutDown();
     }
     
     /**
@@ -27,9 +208,7 @@ public class SonarQubeClient {
         String url = "http://localhost:9001";
         
         try {
-            JsonResponse response = (JsonResponse) Unirest.get(url + "/api/system/status")
-                    .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
-                    .asJson();
+            JsonResponse response = (JsonResponse) http.get(url + "/api/system/status").asJson();
             if (response.getStatus() == 200) {
                 System.out.println("✅ SonarQube found at: " + url);
                 return url;
@@ -43,11 +222,37 @@ public class SonarQubeClient {
         return null;
     }
     
+    /**
+     * Probe the server again when it was not reachable yet, for long-running processes started before SonarQube
+     */
+    public synchronized boolean reconnect() {
+        if (baseUrl == null) {
+            baseUrl = detectSonarQubeUrl();
+            probed = true;
+        }
+        return isAvailable();
+    }
+    
     public boolean isAvailable() {
-        return baseUrl != null;
+        return baseUrl() != null;
     }
     
     public String getBaseUrl() {
+        return baseUrl();
+    }
+    
+    /**
+     * Server URL, detected on first use
+     */
+    private String baseUrl() {
+        if (!probed) {
+            synchronized (this) {
+                if (!probed) {
+                    baseUrl = detectSonarQubeUrl();
+                    probed = true;
+                }
+            }
+        }
         return baseUrl;
     }
     
@@ -55,74 +260,136 @@ public class SonarQubeClient {
      * Create a new project in SonarQube
      */
     public JsonResponse createProject(String projectName, String projectKey) {
-        return (JsonResponse) Unirest.post(baseUrl + "/api/projects/create")
+        return (JsonResponse) send("/api/projects/create", slot -> http.post(baseUrl() + "/api/projects/create")
                 .header("Content-Type", "application/x-www-form-urlencoded")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
                 .body("name=" + projectName + "&project=" + projectKey)
-                .asJson();
+                .asJson(), false);
+    }
+    
+    /**
+     * Fetch the state of a Compute Engine task, such as the processing of an uploaded analysis report
+     */
+    public JsonResponse getCeTask(String taskId) {
+        return (JsonResponse) send("/api/ce/task", slot -> http.get(baseUrl() + "/api/ce/task")
+                .queryString("id", taskId)
+                .asJson(), true);
     }
     
     /**
      * Search for projects
      */
     public JsonResponse searchProjects(String query) {
-        return (JsonResponse) Unirest.get(baseUrl + "/api/projects/search")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
+        return (JsonResponse) send("/api/projects/search", slot -> http.get(baseUrl() + "/api/projects/search")
                 .queryString("q", query)
-                .asJson();
+                .asJson(), true);
     }
     
     /**
-     * Search all projects
+     * Fetch one page of all projects (pages start at 1)
      */
-    public JsonResponse getAllProjects() {
-        return (JsonResponse) Unirest.get(baseUrl + "/api/projects/search")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
-                .queryString("ps", "100")
-                .asJson();
+    public JsonResponse getProjects(int page, int pageSize) {
+        return (JsonResponse) send("/api/projects/search", slot -> http.get(baseUrl() + "/api/projects/search")
+                .queryString("p", page)
+                .queryString("ps", pageSize)
+                .asJson(), true);
     }
     
     /**
      * Generate a user token
      */
     public JsonResponse generateToken(String tokenName) {
-        return (JsonResponse) Unirest.post(baseUrl + "/api/user_tokens/generate")
+        return (JsonResponse) send("/api/user_tokens/generate", slot -> http.post(baseUrl() + "/api/user_tokens/generate")
                 .header("Content-Type", "application/x-www-form-urlencoded")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
                 .body("name=" + tokenName)
-                .asJson();
+                .asJson(), false);
     }
     
     /**
      * Search user tokens
      */
     public JsonResponse searchTokens() {
-        return (JsonResponse) Unirest.get(baseUrl + "/api/user_tokens/search")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
-                .asJson();
+        return (JsonResponse) send("/api/user_tokens/search", slot -> http.get(baseUrl() + "/api/user_tokens/search").asJson(), true);
+    }
+    
+    /**
+     * Search one page of issues matching a query (pages start at 1)
+     */
+    public JsonResponse searchIssues(IssueQuery query, int page, int pageSize) {
+        return (JsonResponse) send("/api/issues/search ps=" + pageSize, slot -> buildIssueSearch(query)
+                .queryString("p", page)
+                .queryString("ps", pageSize)
+                .asJson(), true);
     }
     
     /**
-     * Search for issues by project and severity
+     * Stream one page of issues matching a query into the sink (pages start at 1).
+     * The limiter slot is given back before the body is decoded into the sink.
      */
-    public JsonResponse searchIssues(String projectKey, String severity) {
-        return (JsonResponse) Unirest.get(baseUrl + "/api/issues/search")
+    public SearchPage streamIssues(IssueQuery query, int page, int pageSize, RecordSink<Issue> sink) {
+        return send("/api/issues/search ps=" + pageSize, slot -> buildIssueSearch(query)
+                .queryString("p", page)
+                .queryString("ps", pageSize)
+                .asObject(response -> {
+                    slot.release(response.getStatus());
+                    return SearchResponseDecoder.decodeIssuePage(response, sink);
+                }), true)
+                .getBody();
+    }
+    
+    /**
+     * Fetch facet counts for a query without downloading its issues
+     */
+    public JsonResponse searchIssueFacets(IssueQuery query, String facets) {
+        return (JsonResponse) send("/api/issues/search facets", slot -> buildIssueSearch(query)
+                .queryString("facets", facets)
+                .queryString("ps", 1)
+                .asJson(), true);
+    }
+    
+    /**
+     * Build an issue search request carrying every filter of the query
+     */
+    private GetRequest buildIssueSearch(IssueQuery query) {
+        GetRequest request = http.get(baseUrl() + "/api/issues/search")
                 .header("Content-Type", "application/x-www-form-urlencoded")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
-                .queryString("project", projectKey)
-                .queryString("severities", severity)
-                .asJson();
+                .queryString("project", query.getProjectKey());
+        if (query.getSeverities() != null) {
+            request = request.queryString("severities", query.getSeverities());
+        }
+        if (query.getCreatedAfter() != null) {
+            request = request.queryString("createdAfter", IssueQuery.SONAR_DATE_TIME.format(query.getCreatedAfter()));
+        }
+        if (query.getCreatedBefore() != null) {
+            request = request.queryString("createdBefore", IssueQuery.SONAR_DATE_TIME.format(query.getCreatedBefore()));
+        }
+        if (query.getDirectory() != null) {
+            request = request.queryString("directories", query.getDirectory());
+        }
+        if (query.getFile() != null) {
+            request = request.queryString("files", query.getFile());
+        }
+        if (query.getSort() != null) {
+            request = request.queryString("s", query.getSort())
+                    .queryString("asc", query.isAscending());
+        }
+        return request;
     }
     
     /**
-     * Search for security hotspots by project
+     * Stream one page of security hotspots of a project into the sink (pages start at 1).
+     * The limiter slot is given back before the body is decoded into the sink.
      */
-    public JsonResponse searchHotspots(String projectKey) {
-        return (JsonResponse) Unirest.get(baseUrl + "/api/hotspots/search")
+    public SearchPage streamHotspots(String projectKey, int page, int pageSize, RecordSink<Hotspot> sink) {
+        return send("/api/hotspots/search ps=" + pageSize, slot -> http.get(baseUrl() + "/api/hotspots/search")
                 .header("Content-Type", "application/x-www-form-urlencoded")
-                .header("Authorization", ProjectScannerConstants.AUTHENTICATION_HEADER_VALUE)
                 .queryString("projectKey", projectKey)
-                .asJson();
+                .queryString("p", page)
+                .queryString("ps", pageSize)
+                .asObject(response -> {
+                    slot.release(response.getStatus());
+                    return SearchResponseDecoder.decodeHotspotPage(response, sink);
+                }), true)
+                .getBody();
     }
 }
 
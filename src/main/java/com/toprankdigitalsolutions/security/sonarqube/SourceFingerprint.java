@@ -0,0 +1,161 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Content fingerprint of everything a scan reads from a project: the source and test trees and the
+ * build files the scanner looks at. The fingerprint of the last successful scan is stored as
+ * sq_scan.fingerprint next to sq_variables.config
+ */
+public class SourceFingerprint {
+    
+    private static final String FILE_NAME = "sq_scan.fingerprint";
+    private static final String FINGERPRINT_PROPERTY = "fingerprint";
+    
+    /**
+     * Bump when the set of hashed inputs changes, so older fingerprints never match
+     */
+    private static final String FORMAT_VERSION = "1";
+    
+    private static final String[] SOURCE_DIRECTORIES = {"src/main/java", "src/test/java"};
+    
+    private static final String[] CONFIG_FILES = {
+        "sonar-project.properties", "pom.xml", "build.gradle", "build.gradle.kts", "settings.gradle", "settings.gradle.kts"
+    };
+    
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    
+    private SourceFingerprint() {
+    }
+    
+    /**
+     * Hash the path, size and SHA-256 of every input file, digesting file contents in parallel
+     */
+    public static String compute(String projectPath, String projectKey) throws IOException {
+        Path root = Paths.get(projectPath);
+        List<Path> files = new ArrayList<>();
+        for (String directory : SOURCE_DIRECTORIES) {
+            Path sourceRoot = root.resolve(directory);
+            if (Files.isDirectory(sourceRoot)) {
+                try (Stream<Path> walk = Files.walk(sourceRoot)) {
+                    walk.filter(Files::isRegularFile).forEach(files::add);
+                }
+            }
+        }
+        for (String configFile : CONFIG_FILES) {
+            Path path = root.resolve(configFile);
+            if (Files.isRegularFile(path)) {
+                files.add(path);
+            }
+        }
+        Collections.sort(files);
+        
+        List<String> entries;
+        try {
+            entries = files.parallelStream()
+                    .map(file -> root.relativize(file).toString().replace(File.separatorChar, '/') 
+                            + '\t' + size(file) + '\t' + digest(file))
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        
+        MessageDigest tree = sha256();
+        tree.update((FORMAT_VERSION + '\n' + projectKey + '\n').getBytes(StandardCharsets.UTF_8));
+        for (String entry : entries) {
+            tree.update((entry + '\n').getBytes(StandardCharsets.UTF_8));
+        }
+        return toHex(tree.digest());
+    }
+    
+    /**
+     * Read the fingerprint of the last successful scan, or null when there is none
+     */
+    public static String load(String projectPath) {
+        File fingerprintFile = new File(projectPath, FILE_NAME);
+        if (!fingerprintFile.isFile()) {
+            return null;
+        }
+        
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(fingerprintFile)) {
+            properties.load(reader);
+            return properties.getProperty(FINGERPRINT_PROPERTY);
+        } catch (IOException e) {
+            System.err.println("⚠️ Ignoring unreadable scan fingerprint " + fingerprintFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Record the fingerprint of a successful scan
+     */
+    public static void save(String projectPath, String fingerprint) {
+        Properties properties = new Properties();
+        properties.setProperty(FINGERPRINT_PROPERTY, fingerprint);
+        
+        try (Writer writer = new FileWriter(new File(projectPath, FILE_NAME))) {
+            properties.store(writer, "Sources of the last successful scan");
+        } catch (IOException e) {
+            System.err.println("❌ Failed to save scan fingerprint: " + e.getMessage());
+        }
+    }
+    
+    private static long size(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static String digest(Path file) {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(file)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return toHex(digest.digest());
+    }
+    
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+    
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = HEX_DIGITS[(bytes[i] >> 4) & 0xF];
+            hex[i * 2 + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        return new String(hex);
+    }
+}
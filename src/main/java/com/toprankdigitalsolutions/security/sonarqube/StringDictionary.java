@@ -0,0 +1,56 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the distinct values of a column to dense int codes, so each value is held once however often it repeats.
+ * Code 0 stands for null; values are numbered from 1 in the order they are first seen.
+ */
+public class StringDictionary {
+    
+    public static final int NULL_CODE = 0;
+    
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+    
+    /**
+     * Code of a value, adding it to the dictionary when it is new
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            values.add(value);
+            code = values.size();
+            codes.put(value, code);
+        }
+        return code;
+    }
+    
+    /**
+     * Code of a value already in the dictionary, or -1 when it has never been seen
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+    
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code - 1);
+    }
+    
+    /**
+     * Number of distinct non-null values; codes run from 1 to size()
+     */
+    public int size() {
+        return values.size();
+    }
+}
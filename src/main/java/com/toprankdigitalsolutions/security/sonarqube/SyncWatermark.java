@@ -0,0 +1,84 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Properties;
+
+/**
+ * Point in time up to which the reports of a project are known to be in sync with SonarQube,
+ * stored as reports/&lt;projectKey&gt;/sync.watermark
+ */
+public class SyncWatermark {
+    
+    /**
+     * Issues carry the analysis date as update date, which can be earlier than the moment the
+     * Compute Engine made them visible. Incremental searches reach back this far past the
+     * watermark so that analyses still being processed during the last export are not missed.
+     */
+    public static final Duration OVERLAP = Duration.ofHours(1);
+    
+    private static final String FILE_NAME = "sync.watermark";
+    private static final String LAST_SYNC_PROPERTY = "lastSync";
+    
+    private SyncWatermark() {
+    }
+    
+    /**
+     * Current time, truncated to the precision of SonarQube date filters
+     */
+    public static OffsetDateTime now() {
+        return OffsetDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.SECONDS);
+    }
+    
+    /**
+     * Read the watermark of a project reports directory, or null when there is none
+     */
+    public static OffsetDateTime load(File projectReportsDir) {
+        File watermarkFile = new File(projectReportsDir, FILE_NAME);
+        if (!watermarkFile.isFile()) {
+            return null;
+        }
+        
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(watermarkFile)) {
+            properties.load(reader);
+            String lastSync = properties.getProperty(LAST_SYNC_PROPERTY);
+            return lastSync == null ? null : OffsetDateTime.parse(lastSync, IssueQuery.SONAR_DATE_TIME);
+        } catch (Exception e) {
+            System.err.println("⚠️ Ignoring unreadable sync watermark " + watermarkFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Record the time a successful export started
+     */
+    public static void save(File projectReportsDir, OffsetDateTime syncStart) {
+        Properties properties = new Properties();
+        properties.setProperty(LAST_SYNC_PROPERTY, IssueQuery.SONAR_DATE_TIME.format(syncStart));
+        
+        try (Writer writer = new FileWriter(new File(projectReportsDir, FILE_NAME))) {
+            properties.store(writer, "Last successful report export");
+        } catch (IOException e) {
+            System.err.println("❌ Failed to save sync watermark: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Remove the watermark, so that the next incremental export runs in full
+     */
+    public static void clear(File projectReportsDir) {
+        File watermarkFile = new File(projectReportsDir, FILE_NAME);
+        if (watermarkFile.exists() && !watermarkFile.delete()) {
+            System.err.println("❌ Failed to remove sync watermark " + watermarkFile);
+        }
+    }
+}
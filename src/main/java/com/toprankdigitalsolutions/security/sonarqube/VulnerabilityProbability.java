@@ -0,0 +1,8 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+/**
+ * Review priority of a security hotspot
+ */
+public enum VulnerabilityProbability {
+    HIGH, MEDIUM, LOW
+}
@@ -0,0 +1,83 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ColumnarReportSinkTest {
+    
+    @Test
+    void readerReturnsTheWrittenRowsAcrossRowGroups() throws IOException {
+        List<Issue> issues = new ArrayList<>();
+        for (int i = 0; i < ColumnarReportSink.ROW_GROUP_SIZE * 2 + 5; i++) {
+            Issue issue = new Issue();
+            issue.setKey("AX-" + i);
+            issue.setRule("java:S" + (i % 7));
+            issue.setSeverity(SyntheticPayloads.SEVERITIES[i % SyntheticPayloads.SEVERITIES.length]);
+            issue.setComponent("app:src/File" + (i % 100) + ".java");
+            issue.setLine(i % 3 == 0 ? null : Integer.toString(i % 500));
+            issue.setMessage(i % 11 == 0 ? "" : "Message ü " + i);
+            issue.setCreationDate("2024-01-01T00:00:" + (i % 60) + "+0000");
+            issues.add(issue);
+        }
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ColumnarReportSink<Issue> sink = new ColumnarReportSink<>(bytes, Issue.FIELDS, Set.of("key", "message"), Issue::toValues)) {
+            for (Issue issue : issues) {
+                sink.accept(issue);
+            }
+        }
+        
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertArrayEquals(Issue.FIELDS, reader.getColumns());
+            for (Issue issue : issues) {
+                assertArrayEquals(issue.toValues(), reader.readRow());
+            }
+            assertNull(reader.readRow());
+        }
+    }
+    
+    @Test
+    void dictionaryColumnOfUniqueValuesSwitchesToPlain() throws IOException {
+        int rowCount = ColumnarReportSink.ROW_GROUP_SIZE * 3 + 1;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ColumnarReportSink<Integer> sink = new ColumnarReportSink<>(bytes, new String[] {"unique", "repeated"}, Set.of(),
+                i -> new String[] {"value-" + i, i % 2 == 0 ? "even" : null})) {
+            for (int i = 0; i < rowCount; i++) {
+                sink.accept(i);
+            }
+        }
+        
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            for (int i = 0; i < rowCount; i++) {
+                assertArrayEquals(new String[] {"value-" + i, i % 2 == 0 ? "even" : null}, reader.readRow());
+            }
+            assertNull(reader.readRow());
+        }
+    }
+    
+    @Test
+    void emptyReportHasNoRows() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new ColumnarReportSink<Hotspot>(bytes, Hotspot.FIELDS, Set.of(), Hotspot::toValues).close();
+        
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertArrayEquals(Hotspot.FIELDS, reader.getColumns());
+            assertNull(reader.readRow());
+        }
+    }
+    
+    @Test
+    void otherFilesAreRejected() {
+        assertThrows(IOException.class, () -> new ColumnarReader(new ByteArrayInputStream("key,rule\n".getBytes())));
+    }
+}
@@ -0,0 +1,58 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ComputeEngineTaskWatcherTest {
+    
+    private static final long TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    
+    private MockSonarQubeServer server;
+    private SonarQubeClient client;
+    
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockSonarQubeServer(42);
+        server.start();
+        client = new SonarQubeClient(server.getBaseUrl());
+    }
+    
+    @AfterEach
+    void stopServer() {
+        client.close();
+        server.close();
+    }
+    
+    @Test
+    void finishedTaskEndsTheWait() throws InterruptedException {
+        assertTrue(new ComputeEngineTaskWatcher(client).waitForTask("AX-task", TIMEOUT_MILLIS));
+    }
+    
+    @Test
+    void clientErrorEndsTheWaitAtOnce() throws InterruptedException {
+        server.setErrorRate(1.0, 404);
+        long start = System.nanoTime();
+        
+        assertFalse(new ComputeEngineTaskWatcher(client).waitForTask("AX-unknown", TIMEOUT_MILLIS));
+        
+        assertEquals(1, server.getErrorCount());
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS / 2));
+    }
+    
+    @Test
+    void serverErrorsArePolledThroughUntilTheTimeout() throws InterruptedException {
+        server.setErrorRate(1.0, 500);
+        
+        assertFalse(new ComputeEngineTaskWatcher(client).waitForTask("AX-task", 1000));
+        
+        assertTrue(server.getErrorCount() > 1);
+    }
+}
@@ -0,0 +1,69 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CsvEncoderTest {
+    
+    private static final String NL = System.lineSeparator();
+    
+    @Test
+    void plainValuesAreWrittenAsTheyAre() throws IOException {
+        assertEquals("AX-1,java:S106,12" + NL, encode(new String[] {"AX-1", "java:S106", "12"}));
+    }
+    
+    @Test
+    void specialCharactersAreQuoted() throws IOException {
+        assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"two\nlines\",\"cr\rhere\"" + NL,
+                encode(new String[] {"a,b", "say \"hi\"", "two\nlines", "cr\rhere"}));
+    }
+    
+    @Test
+    void nullIsAnEmptyField() throws IOException {
+        assertEquals(",x," + NL, encode(new String[] {null, "x", null}));
+    }
+    
+    @Test
+    void readerReturnsTheEncodedRows() throws IOException {
+        String[][] rows = {
+            {"key", "message", "author"},
+            {"AX-1", "Remove this \"unused\" import, then rebuild.", "dev@example.com"},
+            {"AX-2", "first line\nsecond line\r\nthird line", ""},
+            {"AX-3", "", "\"quoted\""},
+            {"AX-4", "Ünïcödé 😀", ","}
+        };
+        
+        StringWriter out = new StringWriter();
+        CsvEncoder csv = new CsvEncoder(out);
+        for (String[] row : rows) {
+            csv.writeRow(row);
+        }
+        
+        try (CsvReader reader = new CsvReader(new StringReader(out.toString()))) {
+            for (String[] row : rows) {
+                assertArrayEquals(row, reader.readRow());
+            }
+            assertNull(reader.readRow());
+        }
+    }
+    
+    @Test
+    void unterminatedQuoteIsAnError() {
+        CsvReader reader = new CsvReader(new StringReader("a,\"never closed\n"));
+        assertThrows(IOException.class, reader::readRow);
+    }
+    
+    private static String encode(String[] row) throws IOException {
+        StringWriter out = new StringWriter();
+        new CsvEncoder(out).writeRow(row);
+        return out.toString();
+    }
+}
@@ -0,0 +1,64 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IssueSummaryTest {
+    
+    @TempDir
+    Path reports;
+    
+    @Test
+    void parsesSingleUnits() {
+        assertEquals(5, IssueSummary.parseMinutes("5min"));
+        assertEquals(120, IssueSummary.parseMinutes("2h"));
+        assertEquals(3 * IssueSummary.MINUTES_PER_DAY, IssueSummary.parseMinutes("3d"));
+    }
+    
+    @Test
+    void addsUpCombinedUnits() {
+        assertEquals(90, IssueSummary.parseMinutes("1h 30min"));
+        assertEquals(IssueSummary.MINUTES_PER_DAY + 60 + 5, IssueSummary.parseMinutes("1d 1h 5min"));
+        assertEquals(90, IssueSummary.parseMinutes("1h30min"));
+    }
+    
+    @Test
+    void missingOrMalformedDurationsAreZero() {
+        assertEquals(0, IssueSummary.parseMinutes(null));
+        assertEquals(0, IssueSummary.parseMinutes(""));
+        assertEquals(0, IssueSummary.parseMinutes("5"));
+        assertEquals(0, IssueSummary.parseMinutes("min"));
+        assertEquals(0, IssueSummary.parseMinutes("5 min"));
+        assertEquals(0, IssueSummary.parseMinutes("2w"));
+        assertEquals(0, IssueSummary.parseMinutes("1h 30"));
+    }
+    
+    @Test
+    void writeLeavesOnlyTheCompleteSummaries() throws IOException {
+        Issue issue = new Issue();
+        issue.setSeverity("MAJOR");
+        issue.setEffort("1h 30min");
+        IssueSummary summary = new IssueSummary("app");
+        summary.accept(issue);
+        
+        summary.write(reports.toFile());
+        
+        try (Stream<Path> files = Files.list(reports)) {
+            Set<String> names = files.map(file -> file.getFileName().toString()).collect(Collectors.toSet());
+            assertEquals(Set.of(IssueSummary.CSV_FILE, IssueSummary.JSON_FILE), names);
+        }
+        String json = Files.readString(reports.resolve(IssueSummary.JSON_FILE));
+        assertTrue(json.contains("\"effortMinutes\" : 90"), json);
+        assertTrue(json.trim().endsWith("}"), json);
+    }
+}
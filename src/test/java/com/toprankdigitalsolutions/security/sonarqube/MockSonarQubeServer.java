@@ -0,0 +1,569 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.core.json.JSONArray;
+import kong.unirest.core.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the SonarQube endpoints used by SonarQubeClient, for tests and benchmarks.
+ * <p>
+ * Issues and hotspots are generated from a seed, one record at a time as pages are requested, so a
+ * project of a million issues costs a few megabytes of index instead of its JSON. Issue i of a project
+ * is created ISSUE_SPACING_SECONDS after issue i - 1, which makes creation date filters and sorts exact.
+ * Latency, server errors and 429 throttling can be injected on every endpoint but /api/system/status.
+ */
+public class MockSonarQubeServer implements AutoCloseable {
+    
+    /**
+     * Creation date of the first record of every project
+     */
+    public static final Instant EPOCH = Instant.parse("2023-01-01T00:00:00Z");
+    
+    public static final long ISSUE_SPACING_SECONDS = 60;
+    
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    
+    private final long seed;
+    private final Random injectionRandom;
+    private final Map<String, ProjectData> projects = new ConcurrentSkipListMap<>();
+    private final Map<String, String> tokens = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong throttledCount = new AtomicLong();
+    private final AtomicLong errorCount = new AtomicLong();
+    
+    private volatile long latencyMillis;
+    private volatile long latencyJitterMillis;
+    private volatile double errorRate;
+    private volatile int errorStatus = 503;
+    private volatile int maxInFlight;
+    private volatile int retryAfterSeconds = 1;
+    
+    private HttpServer server;
+    
+    public MockSonarQubeServer(long seed) {
+        this.seed = seed;
+        this.injectionRandom = new Random(seed);
+    }
+    
+    /**
+     * Add an analyzed project; severities are spread over the issues the way the seed decides
+     */
+    public void addProject(String projectKey, int issueCount, int hotspotCount) {
+        projects.put(projectKey, new ProjectData(projectKey, projectKey, issueCount, hotspotCount, seed));
+    }
+    
+    /**
+     * Delay every answer by baseMillis plus a uniform random part of up to jitterMillis
+     */
+    public void setLatency(long baseMillis, long jitterMillis) {
+        this.latencyMillis = baseMillis;
+        this.latencyJitterMillis = jitterMillis;
+    }
+    
+    /**
+     * Answer this fraction of the requests with the given HTTP status instead of their result
+     */
+    public void setErrorRate(double rate, int status) {
+        this.errorRate = rate;
+        this.errorStatus = status;
+    }
+    
+    /**
+     * Answer 429 with a Retry-After header to requests beyond maxInFlight concurrent ones; 0 disables throttling
+     */
+    public void setThrottling(int maxInFlight, int retryAfterSeconds) {
+        this.maxInFlight = maxInFlight;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+    
+    /**
+     * Listen on an ephemeral loopback port
+     */
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 256);
+        server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "mock-sonarqube");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/", this::handle);
+        server.start();
+    }
+    
+    public String getBaseUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+    
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+    
+    public long getThrottledCount() {
+        return throttledCount.get();
+    }
+    
+    public long getErrorCount() {
+        return errorCount.get();
+    }
+    
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdownNow();
+        }
+    }
+    
+    private void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        String path = exchange.getRequestURI().getPath();
+        if ("/api/system/status".equals(path)) {
+            respond(exchange, new Response(200, "{\"id\":\"mock\",\"version\":\"10.6.0.92116\",\"status\":\"UP\"}"));
+            return;
+        }
+        
+        int concurrent = inFlight.incrementAndGet();
+        try {
+            Response response;
+            if (maxInFlight > 0 && concurrent > maxInFlight) {
+                throttledCount.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", String.valueOf(retryAfterSeconds));
+                response = error(429, "Too many requests");
+            } else {
+                injectLatency();
+                if (errorRate > 0 && injectionRandom.nextDouble() < errorRate) {
+                    errorCount.incrementAndGet();
+                    response = error(errorStatus, "Injected failure");
+                } else {
+                    try {
+                        response = route(exchange.getRequestMethod(), path, readParameters(exchange));
+                    } catch (RuntimeException e) {
+                        response = error(400, String.valueOf(e.getMessage()));
+                    }
+                }
+            }
+            respond(exchange, response);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+    
+    private Response route(String method, String path, Map<String, String> params) {
+        boolean post = "POST".equals(method);
+        switch (path) {
+            case "/api/projects/search":
+                return post ? methodNotAllowed() : searchProjects(params);
+            case "/api/projects/create":
+                return post ? createProject(params) : methodNotAllowed();
+            case "/api/user_tokens/generate":
+                return post ? generateToken(params) : methodNotAllowed();
+            case "/api/user_tokens/search":
+                return post ? methodNotAllowed() : searchTokens();
+            case "/api/issues/search":
+                return post ? methodNotAllowed() : searchIssues(params);
+            case "/api/hotspots/search":
+                return post ? methodNotAllowed() : searchHotspots(params);
+            case "/api/ce/task":
+                return post ? methodNotAllowed() : ceTask(params);
+            default:
+                return error(404, "Unknown url : " + path);
+        }
+    }
+    
+    private Response searchProjects(Map<String, String> params) {
+        String query = params.getOrDefault("q", "").toLowerCase();
+        List<ProjectData> matching = new ArrayList<>();
+        for (ProjectData project : projects.values()) {
+            if (project.key.toLowerCase().contains(query) || project.name.toLowerCase().contains(query)) {
+                matching.add(project);
+            }
+        }
+        
+        int page = intParam(params, "p", 1);
+        int pageSize = intParam(params, "ps", DEFAULT_PAGE_SIZE);
+        JSONArray components = new JSONArray();
+        for (int i = (page - 1) * pageSize; i < Math.min(matching.size(), page * pageSize); i++) {
+            ProjectData project = matching.get(i);
+            components.put(new JSONObject()
+                    .put("key", project.key)
+                    .put("name", project.name)
+                    .put("qualifier", "TRK")
+                    .put("visibility", "public"));
+        }
+        JSONObject body = new JSONObject()
+                .put("paging", paging(page, pageSize, matching.size()))
+                .put("components", components);
+        return new Response(200, body.toString());
+    }
+    
+    private Response createProject(Map<String, String> params) {
+        String key = params.get("project");
+        String name = params.getOrDefault("name", key);
+        if (key == null || key.isEmpty()) {
+            return error(400, "The 'project' parameter is missing");
+        }
+        if (projects.putIfAbsent(key, new ProjectData(key, name, 0, 0, seed)) != null) {
+            return error(400, "Could not create Project with key: \"" + key + "\". A similar key already exists: \"" + key + "\"");
+        }
+        JSONObject project = new JSONObject()
+                .put("key", key)
+                .put("name", name)
+                .put("qualifier", "TRK")
+                .put("visibility", "public");
+        return new Response(200, new JSONObject().put("project", project).toString());
+    }
+    
+    private Response generateToken(Map<String, String> params) {
+        String name = params.get("name");
+        if (name == null || name.isEmpty()) {
+            return error(400, "The 'name' parameter is missing");
+        }
+        String token = "squ_" + Long.toHexString(seed ^ name.hashCode()) + Long.toHexString(tokens.size() + 1L);
+        if (tokens.putIfAbsent(name, token) != null) {
+            return error(400, "A user token for login 'admin' and name '" + name + "' already exists");
+        }
+        JSONObject body = new JSONObject()
+                .put("login", "admin")
+                .put("name", name)
+                .put("token", token)
+                .put("createdAt", "2024-01-01T00:00:00+0000");
+        return new Response(200, body.toString());
+    }
+    
+    private Response searchTokens() {
+        JSONArray userTokens = new JSONArray();
+        for (String name : tokens.keySet()) {
+            userTokens.put(new JSONObject().put("name", name).put("createdAt", "2024-01-01T00:00:00+0000"));
+        }
+        return new Response(200, new JSONObject().put("login", "admin").put("userTokens", userTokens).toString());
+    }
+    
+    private Response ceTask(Map<String, String> params) {
+        String id = params.getOrDefault("id", "");
+        JSONObject task = new JSONObject()
+                .put("id", id)
+                .put("type", "REPORT")
+                .put("status", "SUCCESS")
+                .put("executionTimeMs", 1);
+        return new Response(200, new JSONObject().put("task", task).toString());
+    }
+    
+    /**
+     * /api/issues/search with the severities, creation date, sort, paging and severities facet parameters.
+     * Directory and file facets come back empty; their filters are ignored
+     */
+    private Response searchIssues(Map<String, String> params) {
+        String projectKey = params.containsKey("project") ? params.get("project") : params.get("componentKeys");
+        ProjectData project = projectKey == null ? null : projects.get(projectKey);
+        if (project == null) {
+            return error(404, "Component key '" + projectKey + "' not found");
+        }
+        
+        int page = intParam(params, "p", 1);
+        int pageSize = intParam(params, "ps", DEFAULT_PAGE_SIZE);
+        if (pageSize > SonarQubeClient.MAX_PAGE_SIZE) {
+            return error(400, "'ps' value (" + pageSize + ") must be less than " + (SonarQubeClient.MAX_PAGE_SIZE + 1));
+        }
+        if ((long) page * pageSize > SonarQubeClient.MAX_SEARCH_RESULTS) {
+            return error(400, "Can return only the first " + SonarQubeClient.MAX_SEARCH_RESULTS + " results. "
+                    + ((long) page * pageSize) + "th result asked.");
+        }
+        
+        int firstIndex = params.containsKey("createdAfter") ? indexAtOrAfter(params.get("createdAfter")) : 0;
+        int endIndex = params.containsKey("createdBefore") ? indexAtOrAfter(params.get("createdBefore")) : Integer.MAX_VALUE;
+        int[] matching = project.issuesWithSeverities(params.get("severities"));
+        int from = lowerBound(matching, project.severities.length, firstIndex);
+        int to = Math.max(from, lowerBound(matching, project.severities.length, endIndex));
+        int total = to - from;
+        boolean ascending = !"false".equals(params.get("asc"));
+        
+        int offset = (page - 1) * pageSize;
+        int count = Math.max(0, Math.min(pageSize, total - offset));
+        StringBuilder json = new StringBuilder(256 + count * 900);
+        json.append("{\"total\":").append(total).append(",\"p\":").append(page).append(",\"ps\":").append(pageSize)
+                .append(",\"paging\":{\"pageIndex\":").append(page).append(",\"pageSize\":").append(pageSize)
+                .append(",\"total\":").append(total).append("},\"effortTotal\":").append(total * 5L).append(",\"issues\":[");
+        for (int i = 0; i < count; i++) {
+            int position = ascending ? from + offset + i : to - 1 - offset - i;
+            int index = matching == null ? position : matching[position];
+            if (i > 0) {
+                json.append(',');
+            }
+            SyntheticPayloads.appendIssue(json, project.recordRandom(index), project.key,
+                    SyntheticPayloads.SEVERITIES[project.severities[index]], creationDate(index));
+        }
+        json.append("],\"components\":[],\"facets\":[");
+        String facets = params.get("facets");
+        if (facets != null) {
+            boolean first = true;
+            for (String facet : facets.split(",")) {
+                if (!first) {
+                    json.append(',');
+                }
+                first = false;
+                json.append("{\"property\":\"").append(facet).append("\",\"values\":[");
+                if ("severities".equals(facet)) {
+                    appendSeverityFacet(json, project, params.get("severities"), firstIndex, endIndex);
+                }
+                json.append("]}");
+            }
+        }
+        json.append("]}");
+        return new Response(200, json.toString());
+    }
+    
+    private void appendSeverityFacet(StringBuilder json, ProjectData project, String severities, int firstIndex, int endIndex) {
+        boolean first = true;
+        for (int severity = 0; severity < SyntheticPayloads.SEVERITIES.length; severity++) {
+            String name = SyntheticPayloads.SEVERITIES[severity];
+            if (severities != null && !Arrays.asList(severities.split(",")).contains(name)) {
+                continue;
+            }
+            int[] indexes = project.bySeverity[severity];
+            int count = Math.max(0, lowerBound(indexes, indexes.length, endIndex) - lowerBound(indexes, indexes.length, firstIndex));
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            json.append("{\"val\":\"").append(name).append("\",\"count\":").append(count).append('}');
+        }
+    }
+    
+    private Response searchHotspots(Map<String, String> params) {
+        String projectKey = params.get("projectKey");
+        ProjectData project = projectKey == null ? null : projects.get(projectKey);
+        if (project == null) {
+            return error(404, "Project '" + projectKey + "' not found");
+        }
+        
+        int page = intParam(params, "p", 1);
+        int pageSize = intParam(params, "ps", DEFAULT_PAGE_SIZE);
+        if (pageSize > SonarQubeClient.MAX_PAGE_SIZE) {
+            return error(400, "'ps' value (" + pageSize + ") must be less than " + (SonarQubeClient.MAX_PAGE_SIZE + 1));
+        }
+        int offset = (page - 1) * pageSize;
+        int count = Math.max(0, Math.min(pageSize, project.hotspotCount - offset));
+        
+        StringBuilder json = new StringBuilder(256 + count * 600);
+        json.append("{\"paging\":{\"pageIndex\":").append(page).append(",\"pageSize\":").append(pageSize)
+                .append(",\"total\":").append(project.hotspotCount).append("},\"hotspots\":[");
+        for (int i = 0; i < count; i++) {
+            int index = offset + i;
+            if (i > 0) {
+                json.append(',');
+            }
+            // Hotspots draw from their own stream so that they do not repeat the issue of the same index
+            SyntheticPayloads.appendHotspot(json, project.recordRandom(~index), project.key, creationDate(index));
+        }
+        json.append("],\"components\":[]}");
+        return new Response(200, json.toString());
+    }
+    
+    private static String creationDate(int index) {
+        OffsetDateTime created = EPOCH.plusSeconds(index * ISSUE_SPACING_SECONDS).atOffset(ZoneOffset.UTC);
+        return IssueQuery.SONAR_DATE_TIME.format(created);
+    }
+    
+    /**
+     * Index of the first record created at or after a SonarQube date or date-time parameter
+     */
+    private static int indexAtOrAfter(String value) {
+        Instant instant = value.length() == 10
+                ? LocalDate.parse(value).atStartOfDay(ZoneOffset.UTC).toInstant()
+                : OffsetDateTime.parse(value, IssueQuery.SONAR_DATE_TIME).toInstant();
+        long seconds = instant.getEpochSecond() - EPOCH.getEpochSecond();
+        if (seconds <= 0) {
+            return 0;
+        }
+        return (int) Math.min(Integer.MAX_VALUE, (seconds + ISSUE_SPACING_SECONDS - 1) / ISSUE_SPACING_SECONDS);
+    }
+    
+    /**
+     * Position of the first index not below value; a null array stands for the indexes 0 to issueCount - 1
+     */
+    private static int lowerBound(int[] indexes, int issueCount, int value) {
+        if (indexes == null) {
+            return Math.min(value, issueCount);
+        }
+        int position = Arrays.binarySearch(indexes, value);
+        return position >= 0 ? position : -position - 1;
+    }
+    
+    private void injectLatency() {
+        long delay = latencyMillis + (latencyJitterMillis > 0 ? (long) (injectionRandom.nextDouble() * latencyJitterMillis) : 0);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private static JSONObject paging(int page, int pageSize, int total) {
+        return new JSONObject().put("pageIndex", page).put("pageSize", pageSize).put("total", total);
+    }
+    
+    private static int intParam(Map<String, String> params, String name, int defaultValue) {
+        String value = params.get(name);
+        return value == null || value.isEmpty() ? defaultValue : Integer.parseInt(value);
+    }
+    
+    private static Response methodNotAllowed() {
+        return error(405, "HTTP method not allowed");
+    }
+    
+    private static Response error(int status, String message) {
+        JSONObject error = new JSONObject().put("msg", message);
+        return new Response(status, new JSONObject().put("errors", new JSONArray().put(error)).toString());
+    }
+    
+    private static void respond(HttpExchange exchange, Response response) throws IOException {
+        byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(response.status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+    
+    /**
+     * Query string parameters, plus form parameters of a POST body
+     */
+    private static Map<String, String> readParameters(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+    
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            params.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+    
+    /**
+     * Severity of every issue of a project, plus the issue indexes of each severity in creation order
+     */
+    private static class ProjectData {
+        private final String key;
+        private final String name;
+        private final int hotspotCount;
+        private final long recordSeed;
+        private final byte[] severities;
+        private final int[][] bySeverity;
+        private final Map<String, int[]> filtered = new ConcurrentHashMap<>();
+        
+        private ProjectData(String key, String name, int issueCount, int hotspotCount, long seed) {
+            this.key = key;
+            this.name = name;
+            this.hotspotCount = hotspotCount;
+            this.recordSeed = seed * 31 + key.hashCode();
+            this.severities = new byte[issueCount];
+            
+            Random random = new Random(recordSeed);
+            int[] counts = new int[SyntheticPayloads.SEVERITIES.length];
+            for (int i = 0; i < issueCount; i++) {
+                // Skewed towards MAJOR and MINOR, like real projects
+                int roll = random.nextInt(100);
+                int severity = roll < 2 ? 0 : roll < 10 ? 1 : roll < 50 ? 2 : roll < 85 ? 3 : 4;
+                severities[i] = (byte) severity;
+                counts[severity]++;
+            }
+            this.bySeverity = new int[counts.length][];
+            for (int severity = 0; severity < counts.length; severity++) {
+                bySeverity[severity] = new int[counts[severity]];
+            }
+            int[] filled = new int[counts.length];
+            for (int i = 0; i < issueCount; i++) {
+                bySeverity[severities[i]][filled[severities[i]]++] = i;
+            }
+        }
+        
+        /**
+         * Issue indexes matching a comma separated severities filter, or null when every issue matches
+         */
+        private int[] issuesWithSeverities(String filter) {
+            if (filter == null || filter.isEmpty()) {
+                return null;
+            }
+            return filtered.computeIfAbsent(filter, this::collectSeverities);
+        }
+        
+        private int[] collectSeverities(String filter) {
+            List<String> wanted = Arrays.asList(filter.split(","));
+            int size = 0;
+            int single = -1;
+            for (int severity = 0; severity < bySeverity.length; severity++) {
+                if (wanted.contains(SyntheticPayloads.SEVERITIES[severity])) {
+                    size += bySeverity[severity].length;
+                    single = single == -1 ? severity : -2;
+                }
+            }
+            if (single >= 0) {
+                return bySeverity[single];
+            }
+            int[] matching = new int[size];
+            int next = 0;
+            for (int i = 0; i < severities.length; i++) {
+                if (wanted.contains(SyntheticPayloads.SEVERITIES[severities[i]])) {
+                    matching[next++] = i;
+                }
+            }
+            return matching;
+        }
+        
+        /**
+         * Random source of one record; the same index always yields the same record
+         */
+        private Random recordRandom(int index) {
+            return new Random(recordSeed * 1_000_003 + index);
+        }
+    }
+    
+    private static class Response {
+        private final int status;
+        private final String body;
+        
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
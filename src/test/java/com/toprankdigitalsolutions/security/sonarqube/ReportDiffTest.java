@@ -0,0 +1,149 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReportDiffTest {
+    
+    @TempDir
+    Path directory;
+    
+    @Test
+    void keysCompareInCodePointOrder() {
+        assertTrue(ReportDiff.compareKeys("AX-1", "AX-2") < 0);
+        assertTrue(ReportDiff.compareKeys("AX", "AX-1") < 0);
+        assertEquals(0, ReportDiff.compareKeys("AX-1", "AX-1"));
+        // UTF-16 puts the surrogate pair of U+1F600 before U+FFFF, UTF-8 and code points after it
+        assertTrue("\uFFFF".compareTo("\uD83D\uDE00") > 0);
+        assertTrue(ReportDiff.compareKeys("\uFFFF", "\uD83D\uDE00") < 0);
+    }
+    
+    @Test
+    void mergeClassifiesEveryIssue() throws IOException {
+        File older = snapshot("older.snapshot",
+                issue("A", "OPEN", "Unchanged", "2024-01-01"),
+                issue("B", "OPEN", "Old message", "2024-01-01"),
+                issue("C", "OPEN", "Removed", "2024-01-01"),
+                issue("D", "OPEN", "Resolved later", "2024-01-01"),
+                issue("E", "CLOSED", "Already closed", "2024-01-01"));
+        File newer = snapshot("newer.snapshot",
+                issue("A", "OPEN", "Unchanged", "2024-02-01"),
+                issue("B", "OPEN", "New message", "2024-02-01"),
+                issue("D", "RESOLVED", "Resolved later", "2024-02-01"),
+                issue("F", "OPEN", "Added", "2024-02-01"),
+                issue("G", "CLOSED", "Added and closed", "2024-02-01"));
+        File output = directory.resolve(ReportDiff.DIRECTORY).toFile();
+        
+        ReportDiffResult result = new ReportDiff().diff(older, newer, output);
+        
+        assertEquals(1, result.getNewIssues());
+        assertEquals(2, result.getFixedIssues());
+        assertEquals(1, result.getChangedIssues());
+        assertEquals(1, result.getUnchangedIssues());
+        assertEquals(List.of("F"), keys(new File(output, "new.csv")));
+        assertEquals(List.of("C", "D"), keys(new File(output, "fixed.csv")));
+        assertEquals(List.of("B"), keys(new File(output, "changed.csv")));
+        
+        List<String[]> changed = rows(new File(output, "changed.csv"));
+        assertEquals("changes", changed.get(0)[Issue.FIELDS.length]);
+        assertEquals("message: Old message -> New message", changed.get(1)[Issue.FIELDS.length]);
+    }
+    
+    @Test
+    void identicalSnapshotsHaveNoDifferences() throws IOException {
+        File snapshot = snapshot("same.snapshot",
+                issue("A", "OPEN", "One", "2024-01-01"),
+                issue("B", "OPEN", "Two", "2024-01-01"));
+        File output = directory.resolve(ReportDiff.DIRECTORY).toFile();
+        
+        ReportDiffResult result = new ReportDiff().diff(snapshot, snapshot, output);
+        
+        assertEquals(0, result.getNewIssues() + result.getFixedIssues() + result.getChangedIssues());
+        assertEquals(2, result.getUnchangedIssues());
+        assertArrayEquals(Issue.FIELDS, rows(new File(output, "new.csv")).get(0));
+    }
+    
+    @Test
+    void snapshotsOfTheSameSecondAreKeptInSaveOrder() throws IOException {
+        File projectReportsDir = directory.toFile();
+        IssueTable first = new IssueTable();
+        first.add(issue("A", "OPEN", "First", "2024-01-01"));
+        IssueTable second = new IssueTable();
+        second.add(issue("B", "OPEN", "Second", "2024-01-01"));
+        Instant exportedAt = Instant.parse("2024-01-01T02:00:00Z");
+        
+        File saved = IssueSnapshot.save(projectReportsDir, first, exportedAt);
+        File savedAgain = IssueSnapshot.save(projectReportsDir, second, exportedAt);
+        
+        assertEquals("20240101T020000.000Z.issues.snap", saved.getName());
+        assertEquals("20240101T020000.001Z.issues.snap", savedAgain.getName());
+        assertEquals(List.of(saved, savedAgain), IssueSnapshot.list(projectReportsDir));
+        try (IssueSnapshotReader reader = new IssueSnapshotReader(saved)) {
+            assertEquals("A", reader.readRow()[0]);
+        }
+    }
+    
+    private File snapshot(String name, Issue... issues) throws IOException {
+        IssueTable table = new IssueTable();
+        // Added out of key order: the snapshot sorts them
+        List<Issue> shuffled = new ArrayList<>(Arrays.asList(issues));
+        Collections.reverse(shuffled);
+        for (Issue issue : shuffled) {
+            table.add(issue);
+        }
+        File file = directory.resolve(name).toFile();
+        IssueSnapshot.write(table, file);
+        return file;
+    }
+    
+    private static Issue issue(String key, String status, String message, String updateDate) {
+        Issue issue = new Issue();
+        issue.setKey(key);
+        issue.setRule("java:S106");
+        issue.setSeverity("MAJOR");
+        issue.setComponent("app:src/main/java/App.java");
+        issue.setProject("app");
+        issue.setLine("12");
+        issue.setStatus(status);
+        issue.setMessage(message);
+        issue.setCreationDate("2024-01-01T00:00:00+0000");
+        issue.setUpdateDate(updateDate + "T00:00:00+0000");
+        issue.setType("CODE_SMELL");
+        issue.setScope("MAIN");
+        return issue;
+    }
+    
+    private static List<String> keys(File csv) throws IOException {
+        List<String> keys = new ArrayList<>();
+        List<String[]> rows = rows(csv);
+        for (String[] row : rows.subList(1, rows.size())) {
+            keys.add(row[0]);
+        }
+        return keys;
+    }
+    
+    private static List<String[]> rows(File csv) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (CsvReader reader = new CsvReader(Files.newBufferedReader(csv.toPath()))) {
+            String[] row;
+            while ((row = reader.readRow()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,36 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ScanSchedulerTest {
+    
+    private final List<ScanTarget> targets = List.of(
+            new ScanTarget("/src/a", "/workspace"),
+            new ScanTarget("/src/b", "/workspace/"),
+            new ScanTarget("/src/c", "/workspace/c"));
+    
+    @Test
+    void targetsOfABusyWorkspaceWait() {
+        Deque<Integer> queued = new ArrayDeque<>(List.of(0, 1, 2));
+        Set<String> busyWorkspaces = new HashSet<>();
+        
+        assertEquals(0, ScanScheduler.pollStartable(queued, targets, busyWorkspaces));
+        busyWorkspaces.add("/workspace");
+        assertEquals(2, ScanScheduler.pollStartable(queued, targets, busyWorkspaces));
+        busyWorkspaces.add("/workspace/c");
+        assertNull(ScanScheduler.pollStartable(queued, targets, busyWorkspaces));
+        
+        busyWorkspaces.remove("/workspace");
+        assertEquals(1, ScanScheduler.pollStartable(queued, targets, busyWorkspaces));
+        assertEquals(0, queued.size());
+    }
+}
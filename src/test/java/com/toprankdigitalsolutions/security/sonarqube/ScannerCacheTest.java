@@ -0,0 +1,72 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the fake docker script of src/test/fake-docker, so the workspace of the "container" is a
+ * temporary directory of this machine
+ */
+class ScannerCacheTest {
+    
+    @TempDir
+    Path workspace;
+    
+    private final String container = "scanner-" + UUID.randomUUID();
+    
+    @Test
+    void lastScanPrunesTheLeastRecentlyUsedEntries() throws IOException {
+        ScannerCache cache = new ScannerCache(ScannerCache.MODE_PROJECT, null, 1);
+        File hostDir = cache.hostDir(workspace.toString());
+        writeEntry(hostDir, "oldest", 1_000);
+        writeEntry(hostDir, "older", 2_000);
+        writeEntry(hostDir, "newest", 3_000);
+        
+        cache.beginScan(hostDir);
+        cache.beginScan(hostDir);
+        cache.endScan(hostDir, container, cache.containerDir(workspace.toString()));
+        assertEquals(Set.of("oldest", "older", "newest"), cache.entries(hostDir), "a scan still uses the cache");
+        
+        cache.endScan(hostDir, container, cache.containerDir(workspace.toString()));
+        assertEquals(Set.of("newest"), cache.entries(hostDir));
+    }
+    
+    @Test
+    void sharedCacheNotMountedInTheContainerIsReported() throws IOException {
+        // The fake container has no /sonar-cache, so the marker written to the host directory is not found
+        ScannerCache cache = new ScannerCache(ScannerCache.MODE_SHARED, workspace.resolve("shared").toString(), 1);
+        
+        assertFalse(cache.checkMount(container));
+        try (Stream<Path> files = Files.list(workspace.resolve("shared"))) {
+            assertEquals(0, files.count(), "the mount marker is removed");
+        }
+        assertTrue(new ScannerCache(ScannerCache.MODE_PROJECT, null, 1).checkMount(container));
+    }
+    
+    /**
+     * One cache entry of 600 KB, last used at the given time
+     */
+    private static void writeEntry(File hostDir, String name, long lastUsedMillis) throws IOException {
+        Path entry = hostDir.toPath().resolve("cache").resolve(name);
+        Files.createDirectories(entry);
+        Path file = Files.write(entry.resolve("content.jar"), new byte[600 * 1024]);
+        FileTime time = FileTime.fromMillis(lastUsedMillis);
+        for (Path path : new Path[] {file, entry}) {
+            Files.setLastModifiedTime(path, time);
+            Files.setAttribute(path, "lastAccessTime", time);
+        }
+    }
+}
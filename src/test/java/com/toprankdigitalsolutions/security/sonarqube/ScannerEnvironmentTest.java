@@ -0,0 +1,119 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the fake docker script of src/test/fake-docker, which executes the probe on this machine
+ */
+class ScannerEnvironmentTest {
+    
+    @TempDir
+    Path workspace;
+    
+    private final String container = "scanner-" + UUID.randomUUID();
+    
+    @AfterEach
+    void clearCache() {
+        ScannerEnvironment.clearCache();
+    }
+    
+    @Test
+    void probeReadsTheWorkspaceLayout() throws IOException {
+        Files.createDirectories(workspace.resolve("src/main/java"));
+        Files.createDirectories(workspace.resolve("src/test/java"));
+        Files.createDirectories(workspace.resolve("target/classes"));
+        Files.createFile(workspace.resolve("pom.xml"));
+        Files.createFile(workspace.resolve("sonar-project.properties"));
+        
+        ScannerEnvironment environment = ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        
+        assertTrue(environment.isWorkspacePresent());
+        assertTrue(environment.hasTestSources());
+        assertEquals("target/classes", environment.getBinariesDirectory());
+        assertEquals(Set.of("maven", "sonar-project.properties"), environment.getMarkers());
+    }
+    
+    @Test
+    void gradleClassesWinOverMavenClasses() throws IOException {
+        Files.createDirectories(workspace.resolve("build/classes/java/main"));
+        Files.createDirectories(workspace.resolve("target/classes"));
+        Files.createDirectories(workspace.resolve("src/main/kotlin"));
+        Files.createFile(workspace.resolve("build.gradle.kts"));
+        
+        ScannerEnvironment environment = ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        
+        assertFalse(environment.hasTestSources());
+        assertEquals("build/classes/java/main", environment.getBinariesDirectory());
+        assertEquals(Set.of("gradle", "kotlin"), environment.getMarkers());
+    }
+    
+    @Test
+    void repeatedProbeIsServedFromTheCache() throws IOException {
+        Files.createFile(workspace.resolve("package.json"));
+        
+        ScannerEnvironment first = ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        ScannerEnvironment second = ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        
+        assertEquals(1, dockerCalls());
+        assertSame(first, second);
+        assertEquals(Set.of("javascript"), second.getMarkers());
+    }
+    
+    @Test
+    void otherProjectPathIsProbedAgain() throws IOException {
+        ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        ScannerEnvironment.probe(container, workspace.toString(), "/projects/other");
+        
+        assertEquals(2, dockerCalls());
+    }
+    
+    @Test
+    void clearedCacheIsProbedAgain() throws IOException {
+        ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        ScannerEnvironment.clearCache();
+        ScannerEnvironment.probe(container, workspace.toString(), "/projects/app");
+        
+        assertEquals(2, dockerCalls());
+    }
+    
+    @Test
+    void missingWorkspaceIsReportedAndNotCached() throws IOException {
+        String missing = workspace.resolve("missing").toString();
+        
+        ScannerEnvironment environment = ScannerEnvironment.probe(container, missing, "/projects/app");
+        ScannerEnvironment.probe(container, missing, "/projects/app");
+        
+        assertFalse(environment.isWorkspacePresent());
+        assertNull(environment.getBinariesDirectory());
+        assertTrue(environment.getMarkers().isEmpty());
+        assertEquals(2, dockerCalls());
+    }
+    
+    /**
+     * docker invocations for this test's container, as logged by the fake docker script
+     */
+    private long dockerCalls() throws IOException {
+        Path log = Paths.get(System.getenv("FAKE_DOCKER_LOG"));
+        if (!Files.exists(log)) {
+            return 0;
+        }
+        List<String> calls = Files.readAllLines(log);
+        return calls.stream().filter(call -> call.contains(container)).count();
+    }
+}
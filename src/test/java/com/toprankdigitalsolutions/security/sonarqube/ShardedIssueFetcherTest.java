@@ -0,0 +1,69 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedIssueFetcherTest {
+    
+    private MockSonarQubeServer server;
+    private SonarQubeClient client;
+    
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockSonarQubeServer(42);
+        server.addProject("small", 1200, 0);
+        server.addProject("large", 25000, 0);
+        server.start();
+        client = new SonarQubeClient(server.getBaseUrl());
+    }
+    
+    @AfterEach
+    void stopServer() {
+        client.close();
+        server.close();
+    }
+    
+    @Test
+    void fetchesQueriesUnderTheCapDirectly() throws IOException {
+        Set<String> keys = new HashSet<>();
+        int fetched = new ShardedIssueFetcher(client, 4).fetchAll(IssueQuery.forProject("small"), issue -> keys.add(issue.getKey())).getFetched();
+        
+        assertEquals(1200, fetched);
+        assertEquals(1200, keys.size());
+    }
+    
+    @Test
+    void shardsQueriesOverTheCapWithoutLosingOrRepeatingIssues() throws IOException {
+        Set<String> keys = new HashSet<>();
+        int[] delivered = new int[1];
+        FetchResult result = new ShardedIssueFetcher(client, 4).fetchAll(IssueQuery.forProject("large"), issue -> {
+            keys.add(issue.getKey());
+            delivered[0]++;
+        });
+        
+        assertEquals(25000, result.getFetched());
+        assertFalse(result.isTruncated());
+        assertEquals(25000, delivered[0]);
+        assertEquals(25000, keys.size());
+    }
+    
+    @Test
+    void unshardedFetchReportsTheIssuesBeyondTheCap() throws IOException {
+        int[] delivered = new int[1];
+        FetchResult result = new IssueFetcher(client).fetchAll(IssueQuery.forProject("large"), issue -> delivered[0]++);
+        
+        assertTrue(result.isTruncated());
+        assertEquals(10000, result.getFetched());
+        assertEquals(15000, result.getMissed());
+        assertEquals(10000, delivered[0]);
+    }
+}
@@ -0,0 +1,188 @@
+package com.toprankdigitalsolutions.security.sonarqube;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic, SonarQube-shaped search responses split into 500-record pages. Large payloads cycle
+ * through a bounded set of distinct pages so that a million records do not need a gigabyte of heap
+ */
+public final class SyntheticPayloads {
+    
+    public static final int PAGE_SIZE = SonarQubeClient.MAX_PAGE_SIZE;
+    
+    private static final int DISTINCT_PAGES = 20;
+    
+    static final String[] SEVERITIES = {"BLOCKER", "CRITICAL", "MAJOR", "MINOR", "INFO"};
+    private static final String[] TYPES = {"CODE_SMELL", "BUG", "VULNERABILITY"};
+    private static final String[] STATUSES = {"OPEN", "CONFIRMED", "REOPENED"};
+    private static final String[] CATEGORIES = {"sql-injection", "xss", "weak-cryptography", "insecure-conf", "dos"};
+    private static final String[] PROBABILITIES = {"HIGH", "MEDIUM", "LOW"};
+    private static final String[] MESSAGES = {
+        "Remove this unused import 'java.util.List'.",
+        "Refactor this method to reduce its Cognitive Complexity from 23 to the 15 allowed.",
+        "Define a constant instead of duplicating this literal \"application/json\" 4 times.",
+        "Make sure that hashing data is safe here, e.g. for passwords, keys, or tokens.",
+        "Replace this use of System.out by a logger.",
+        "Add a nested comment explaining why this method is empty, throw an UnsupportedOperationException or complete the implementation."
+    };
+    
+    private SyntheticPayloads() {
+    }
+    
+    /**
+     * Issue search pages holding issueCount issues in total
+     */
+    public static List<byte[]> issuePages(int issueCount, long seed) {
+        return pages(issueCount, seed, true);
+    }
+    
+    /**
+     * Hotspot search pages holding hotspotCount hotspots in total
+     */
+    public static List<byte[]> hotspotPages(int hotspotCount, long seed) {
+        return pages(hotspotCount, seed, false);
+    }
+    
+    /**
+     * One issues/search response page; the total is what SonarQube reports for the whole search
+     */
+    public static byte[] issuePage(Random random, int firstIndex, int count, int total) {
+        StringBuilder json = new StringBuilder(count * 900);
+        json.append("{\"total\":").append(total).append(",\"p\":").append(firstIndex / PAGE_SIZE + 1)
+                .append(",\"ps\":").append(PAGE_SIZE)
+                .append(",\"paging\":{\"pageIndex\":").append(firstIndex / PAGE_SIZE + 1)
+                .append(",\"pageSize\":").append(PAGE_SIZE).append(",\"total\":").append(total).append("},")
+                .append("\"effortTotal\":").append(total * 5).append(",\"issues\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendIssue(json, random, firstIndex + i);
+        }
+        json.append("],\"components\":[],\"facets\":[]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    /**
+     * One hotspots/search response page
+     */
+    public static byte[] hotspotPage(Random random, int firstIndex, int count, int total) {
+        StringBuilder json = new StringBuilder(count * 600);
+        json.append("{\"paging\":{\"pageIndex\":").append(firstIndex / PAGE_SIZE + 1)
+                .append(",\"pageSize\":").append(PAGE_SIZE).append(",\"total\":").append(total).append("},\"hotspots\":[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendHotspot(json, random, firstIndex + i);
+        }
+        json.append("],\"components\":[]}");
+        return json.toString().getBytes(StandardCharsets.UTF_8);
+    }
+    
+    private static List<byte[]> pages(int recordCount, long seed, boolean issues) {
+        Random random = new Random(seed);
+        int pageCount = (recordCount + PAGE_SIZE - 1) / PAGE_SIZE;
+        List<byte[]> distinct = new ArrayList<>();
+        List<byte[]> pages = new ArrayList<>(pageCount);
+        for (int page = 0; page < pageCount; page++) {
+            int firstIndex = page * PAGE_SIZE;
+            int count = Math.min(PAGE_SIZE, recordCount - firstIndex);
+            if (count < PAGE_SIZE) {
+                pages.add(issues ? issuePage(random, firstIndex, count, recordCount) : hotspotPage(random, firstIndex, count, recordCount));
+            } else if (distinct.size() < DISTINCT_PAGES) {
+                byte[] generated = issues ? issuePage(random, firstIndex, count, recordCount) : hotspotPage(random, firstIndex, count, recordCount);
+                distinct.add(generated);
+                pages.add(generated);
+            } else {
+                pages.add(distinct.get(page % DISTINCT_PAGES));
+            }
+        }
+        return pages;
+    }
+    
+    private static void appendIssue(StringBuilder json, Random random, int index) {
+        String creationDate = "2024-0" + (1 + random.nextInt(9)) + "-1" + random.nextInt(10)
+                + "T10:1" + random.nextInt(10) + ":00+0000";
+        appendIssue(json, random, "project-" + (index % 7), pick(random, SEVERITIES), creationDate);
+    }
+    
+    /**
+     * Append one issue object with the given project, severity and creation date; everything else is drawn from random
+     */
+    static void appendIssue(StringBuilder json, Random random, String project, String severity, String creationDate) {
+        String component = project + ":src/main/java/com/example/module" + random.nextInt(40) 
+                + "/Class" + random.nextInt(400) + ".java";
+        int line = 1 + random.nextInt(2000);
+        json.append("{\"key\":\"").append(key(random)).append('"')
+                .append(",\"rule\":\"java:S").append(100 + random.nextInt(5000)).append('"')
+                .append(",\"severity\":\"").append(severity).append('"')
+                .append(",\"component\":\"").append(component).append('"')
+                .append(",\"project\":\"").append(project).append('"')
+                .append(",\"line\":").append(line)
+                .append(",\"hash\":\"").append(hex(random, 32)).append('"')
+                .append(",\"textRange\":{\"startLine\":").append(line).append(",\"endLine\":").append(line + random.nextInt(3))
+                .append(",\"startOffset\":").append(random.nextInt(80)).append(",\"endOffset\":").append(random.nextInt(120)).append('}')
+                .append(",\"flows\":[]")
+                .append(",\"status\":\"").append(pick(random, STATUSES)).append('"')
+                .append(",\"message\":\"").append(escape(pick(random, MESSAGES))).append('"')
+                .append(",\"effort\":\"").append(5 * (1 + random.nextInt(12))).append("min\"")
+                .append(",\"debt\":\"").append(5 * (1 + random.nextInt(12))).append("min\"")
+                .append(",\"author\":\"dev").append(random.nextInt(50)).append("@example.com\"")
+                .append(",\"tags\":[\"unused\",\"clumsy\"]")
+                .append(",\"creationDate\":\"").append(creationDate).append('"')
+                .append(",\"updateDate\":\"").append(creationDate).append('"')
+                .append(",\"type\":\"").append(pick(random, TYPES)).append('"')
+                .append(",\"scope\":\"").append(random.nextInt(5) == 0 ? "TEST" : "MAIN").append('"')
+                .append(",\"quickFixAvailable\":false")
+                .append(",\"cleanCodeAttribute\":\"CONVENTIONAL\",\"cleanCodeAttributeCategory\":\"CONSISTENT\"")
+                .append(",\"impacts\":[{\"softwareQuality\":\"MAINTAINABILITY\",\"severity\":\"LOW\"}]}");
+    }
+    
+    private static void appendHotspot(StringBuilder json, Random random, int index) {
+        appendHotspot(json, random, "project-" + (index % 7), "2024-03-1" + random.nextInt(10) + "T10:00:00+0000");
+    }
+    
+    /**
+     * Append one hotspot object of the given project; everything but the creation date is drawn from random
+     */
+    static void appendHotspot(StringBuilder json, Random random, String project, String creationDate) {
+        json.append("{\"key\":\"").append(key(random)).append('"')
+                .append(",\"component\":\"").append(project).append(":src/main/java/com/example/Service")
+                .append(random.nextInt(300)).append(".java\"")
+                .append(",\"project\":\"").append(project).append('"')
+                .append(",\"securityCategory\":\"").append(pick(random, CATEGORIES)).append('"')
+                .append(",\"vulnerabilityProbability\":\"").append(pick(random, PROBABILITIES)).append('"')
+                .append(",\"status\":\"TO_REVIEW\"")
+                .append(",\"line\":").append(1 + random.nextInt(2000))
+                .append(",\"message\":\"").append(escape(pick(random, MESSAGES))).append('"')
+                .append(",\"author\":\"dev").append(random.nextInt(50)).append("@example.com\"")
+                .append(",\"creationDate\":\"").append(creationDate).append('"')
+                .append(",\"updateDate\":\"").append(creationDate).append('"')
+                .append(",\"textRange\":{\"startLine\":3,\"endLine\":3,\"startOffset\":4,\"endOffset\":20}")
+                .append(",\"flows\":[],\"ruleKey\":\"java:S").append(2000 + random.nextInt(3000)).append("\"}");
+    }
+    
+    private static String key(Random random) {
+        return "AY" + hex(random, 18);
+    }
+    
+    private static String hex(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = Character.forDigit(random.nextInt(16), 16);
+        }
+        return new String(chars);
+    }
+    
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}